@@ -0,0 +1,217 @@
+package com.mhs.api.scheduler.loadtest;
+
+import com.mhs.api.scheduler.SchedulerApplication;
+import com.mhs.api.scheduler.loadtest.Workload.Operation;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the registration-day mix against the scheduler at a fixed average request rate.
+ *
+ * The load is open-model: arrivals follow a Poisson process at {@code loadtest.rate} requests per
+ * second whether or not earlier requests have finished, and each request runs on its own virtual
+ * thread. Latency is measured from the moment a request was due to be sent, so a stalled server
+ * shows up in the percentiles instead of quietly slowing the generator down.
+ *
+ * Unless {@code loadtest.url} points at a running instance, the app is started in-process on a
+ * random port against a throwaway copy of the SQLite database.
+ *
+ * System properties (defaults in brackets):
+ *   loadtest.rate      [200]  average requests per second
+ *   loadtest.duration  [60]   measured seconds
+ *   loadtest.warmup    [10]   seconds of load before measuring starts
+ *   loadtest.url       []     base URL of an already running instance
+ *   loadtest.database  [src/main/resources/db/maplewood_school.sqlite]
+ *   loadtest.semester  [7]    semester to register for
+ *   loadtest.students  [400]  student ids are drawn from 1..students
+ *   loadtest.timeoutMs [10000]
+ *   loadtest.output    [target/loadtest]  one .hlog per operation is written here
+ */
+public class RegistrationDayLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int TRANSPORT_ERROR = -1;
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<Integer, LongAdder>> statuses = new EnumMap<>(Operation.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+        int duration = Integer.getInteger("loadtest.duration", 60);
+        int warmup = Integer.getInteger("loadtest.warmup", 10);
+        String url = System.getProperty("loadtest.url", "");
+        Path database = Paths.get(System.getProperty("loadtest.database", "src/main/resources/db/maplewood_school.sqlite"));
+        int semesterId = Integer.getInteger("loadtest.semester", 7);
+        int students = Integer.getInteger("loadtest.students", 400);
+        Duration timeout = Duration.ofMillis(Long.getLong("loadtest.timeoutMs", 10_000L));
+        Path output = Paths.get(System.getProperty("loadtest.output", "target/loadtest"));
+
+        ConfigurableApplicationContext app = null;
+        if (url.isBlank()) {
+            app = startApp(database);
+            url = "http://localhost:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .connectTimeout(timeout)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            Workload workload = new Workload(client, url, semesterId, students, timeout);
+            workload.prepare();
+
+            System.out.printf("🚀 Driving %s at %.0f req/s: %ds warmup + %ds measured%n", url, rate, warmup, duration);
+            RegistrationDayLoadTest test = new RegistrationDayLoadTest();
+            test.run(workload, rate, warmup, duration, timeout);
+            test.report(System.out, duration);
+            test.writeLogs(output);
+        } finally {
+            if (app != null) app.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startApp(Path database) throws IOException {
+        Path copy = Files.createTempDirectory("maplewood-loadtest").resolve("maplewood_school.sqlite");
+        Files.copy(database, copy);
+        copy.toFile().deleteOnExit();
+        // command-line args, so they win over application.yml
+        return new SpringApplicationBuilder(SchedulerApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:sqlite:" + copy.toAbsolutePath());
+    }
+
+    RegistrationDayLoadTest() {
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            statuses.put(op, new ConcurrentHashMap<>());
+        }
+    }
+
+    void run(Workload workload, double rate, int warmupSeconds, int durationSeconds, Duration timeout)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        long due = start;
+        while (due < end) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            Operation op = workload.next();
+            long intended = due;
+            boolean measured = intended >= measureFrom;
+            inFlight.incrementAndGet();
+            Thread.startVirtualThread(() -> {
+                int status;
+                try {
+                    status = workload.execute(op);
+                } catch (Exception e) {
+                    // timeouts, refused connections: nothing came back
+                    status = TRANSPORT_ERROR;
+                }
+                if (measured) record(op, intended, status);
+                inFlight.decrementAndGet();
+            });
+
+            // exponential gaps give Poisson arrivals
+            due += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+        }
+
+        long drainUntil = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void record(Operation op, long intendedNanos, int status) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos);
+        latencies.get(op).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        statuses.get(op).computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    void report(PrintStream out, int durationSeconds) {
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long allErrors = 0;
+
+        out.println();
+        out.printf("%-20s %8s %9s %8s %9s %9s %9s %9s  %s%n",
+                "operation", "count", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms", "statuses");
+        for (Operation op : Operation.values()) {
+            Histogram h = latencies.get(op);
+            long errors = errors(op);
+            all.add(h);
+            allErrors += errors;
+            printRow(out, op.name().toLowerCase(), h, errors, durationSeconds, new TreeMap<>(statuses.get(op)));
+        }
+        printRow(out, "all", all, allErrors, durationSeconds, Map.of());
+
+        out.println();
+        out.println("📊 Latency distribution for all operations (ms):");
+        all.outputPercentileDistribution(out, 1000.0);
+        if (inFlight.get() > 0) {
+            out.println("⚠️ " + inFlight.get() + " requests were still in flight when the run ended");
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram h, long errors, int seconds,
+                                 Map<Integer, LongAdder> statuses) {
+        long count = h.getTotalCount();
+        double errorRate = count == 0 ? 0 : 100.0 * errors / count;
+        out.printf("%-20s %8d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f  %s%n",
+                name, count, (double) count / seconds, errorRate,
+                h.getValueAtPercentile(50) / 1000.0,
+                h.getValueAtPercentile(95) / 1000.0,
+                h.getValueAtPercentile(99) / 1000.0,
+                h.getMaxValue() / 1000.0,
+                statuses.isEmpty() ? "" : statuses.toString());
+    }
+
+    private long errors(Operation op) {
+        long errors = 0;
+        for (Map.Entry<Integer, LongAdder> e : statuses.get(op).entrySet()) {
+            if (e.getKey() < 200 || e.getKey() >= 300) errors += e.getValue().sum();
+        }
+        return errors;
+    }
+
+    void writeLogs(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Operation op : Operation.values()) {
+            Path file = dir.resolve(op.name().toLowerCase() + ".hlog");
+            try (PrintStream ps = new PrintStream(Files.newOutputStream(file))) {
+                HistogramLogWriter writer = new HistogramLogWriter(ps);
+                writer.outputLogFormatVersion();
+                writer.outputLegend();
+                Histogram h = latencies.get(op);
+                h.setTag(op.name().toLowerCase());
+                writer.outputIntervalHistogram(h);
+            }
+        }
+        System.out.println("📝 Wrote HdrHistogram logs to " + dir.toAbsolutePath());
+    }
+}
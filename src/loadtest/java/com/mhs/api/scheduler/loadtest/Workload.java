@@ -0,0 +1,136 @@
+package com.mhs.api.scheduler.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The registration-day request mix.
+ *
+ * Weights are per mille and roughly follow what the front end does while registration is open:
+ * students browse sections and their own schedule far more often than they enroll or drop, and
+ * an admin regenerates the master schedule now and then. Successful enrolments are remembered
+ * so drops hit real rows instead of always missing.
+ */
+class Workload {
+
+    enum Operation {
+        AVAILABLE_SECTIONS(340),
+        STUDENT_SCHEDULE(250),
+        SEMESTER_SCHEDULE(158),
+        ENROLL(150),
+        DROP(100),
+        GENERATE(2);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick(int roll) {
+            for (Operation op : values()) {
+                if (roll < op.weight) return op;
+                roll -= op.weight;
+            }
+            return AVAILABLE_SECTIONS;
+        }
+    }
+
+    private record Enrolment(int studentId, int sectionId) {}
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int semesterId;
+    private final int students;
+    private final Duration timeout;
+    private final List<Integer> sectionIds = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Enrolment> enrolled = new ConcurrentLinkedQueue<>();
+
+    Workload(HttpClient client, String baseUrl, int semesterId, int students, Duration timeout) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.semesterId = semesterId;
+        this.students = students;
+        this.timeout = timeout;
+    }
+
+    /** Generates the semester once so there are sections to browse and enroll in. */
+    void prepare() throws IOException, InterruptedException {
+        HttpResponse<String> generated = client.send(generate(), HttpResponse.BodyHandlers.ofString());
+        if (generated.statusCode() != 200) {
+            throw new IllegalStateException("Generate failed with HTTP " + generated.statusCode() + ": " + generated.body());
+        }
+        HttpResponse<String> sections = client.send(get("/api/student/1/available-sections?semesterId=" + semesterId),
+                HttpResponse.BodyHandlers.ofString());
+        for (JsonNode section : JSON.readTree(sections.body())) {
+            sectionIds.add(section.get("sectionId").asInt());
+        }
+        if (sectionIds.isEmpty()) {
+            throw new IllegalStateException("Semester " + semesterId + " has no sections to enroll in");
+        }
+    }
+
+    Operation next() {
+        return Operation.pick(ThreadLocalRandom.current().nextInt(1000));
+    }
+
+    /** Sends one request and returns its HTTP status. */
+    int execute(Operation op) throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int studentId = 1 + random.nextInt(students);
+        return switch (op) {
+            case AVAILABLE_SECTIONS -> send(get("/api/student/" + studentId + "/available-sections?semesterId=" + semesterId));
+            case STUDENT_SCHEDULE -> send(get("/api/student/" + studentId + "/schedule?semesterId=" + semesterId));
+            case SEMESTER_SCHEDULE -> send(get("/api/schedule/" + semesterId));
+            case GENERATE -> send(generate());
+            case ENROLL -> {
+                int sectionId = sectionIds.get(random.nextInt(sectionIds.size()));
+                HttpResponse<String> response = client.send(post("/api/student/enroll",
+                        "{\"studentId\":" + studentId + ",\"sectionId\":" + sectionId + ",\"semesterId\":" + semesterId + "}"),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200 && response.body().trim().equals("true")) {
+                    enrolled.add(new Enrolment(studentId, sectionId));
+                }
+                yield response.statusCode();
+            }
+            case DROP -> {
+                Enrolment e = enrolled.poll();
+                if (e == null) e = new Enrolment(studentId, sectionIds.get(random.nextInt(sectionIds.size())));
+                yield send(post("/api/student/drop", "{\"studentId\":" + e.studentId() + ",\"sectionId\":" + e.sectionId() + "}"));
+            }
+        };
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest generate() {
+        return post("/api/schedule/generate", "{\"semesterId\":" + semesterId + "}");
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(timeout).GET().build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "maplewood.admission")
+public record AdmissionProperties(
+        boolean enabled,
+        int maxConcurrent,
+        int maxQueue,
+        long maxWaitMs
+) {
+    public AdmissionProperties {
+        if (maxConcurrent <= 0) maxConcurrent = 8;
+        if (maxQueue <= 0) maxQueue = 200;
+        if (maxWaitMs <= 0) maxWaitMs = 250;
+    }
+}
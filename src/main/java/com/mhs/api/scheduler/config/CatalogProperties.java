@@ -0,0 +1,12 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "maplewood.catalog")
+public record CatalogProperties(
+        long checkIntervalSeconds
+) {
+    public CatalogProperties {
+        if (checkIntervalSeconds <= 0) checkIntervalSeconds = 30;
+    }
+}
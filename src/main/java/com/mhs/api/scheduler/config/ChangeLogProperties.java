@@ -0,0 +1,14 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "maplewood.change-log")
+public record ChangeLogProperties(
+        long retainVersions,
+        long compactIntervalSeconds
+) {
+    public ChangeLogProperties {
+        if (retainVersions <= 0) retainVersions = 100_000;
+        if (compactIntervalSeconds <= 0) compactIntervalSeconds = 60;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "maplewood.coalescing")
+public record CoalescingProperties(
+        boolean reads,
+        GeneratePolicy generatePolicy
+) {
+    /** What a generate call does when the semester already has one running or queued. */
+    public enum GeneratePolicy {
+        /** share an identical running or queued run; a different request queues behind them */
+        JOIN,
+        /** replace the request of the run queued behind the running one, and share it */
+        SUPERSEDE
+    }
+
+    public CoalescingProperties {
+        if (generatePolicy == null) generatePolicy = GeneratePolicy.JOIN;
+    }
+}
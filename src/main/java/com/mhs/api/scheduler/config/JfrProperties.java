@@ -0,0 +1,19 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "maplewood.jfr")
+public record JfrProperties(
+        boolean onDemand,
+        String directory,
+        String settings,
+        long maxSizeMb,
+        long maxDurationSeconds
+) {
+    public JfrProperties {
+        if (directory == null || directory.isBlank()) directory = System.getProperty("java.io.tmpdir") + "/maplewood-jfr";
+        if (settings == null || settings.isBlank()) settings = "profile";
+        if (maxSizeMb <= 0) maxSizeMb = 64;
+        if (maxDurationSeconds <= 0) maxDurationSeconds = 120;
+    }
+}
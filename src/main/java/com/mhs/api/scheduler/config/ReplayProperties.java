@@ -0,0 +1,29 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "maplewood.replay")
+public record ReplayProperties(
+        String corpusDirectory,
+        int warmupRuns,
+        int measuredRuns,
+        long exactTimeLimitMs,
+        double assignedTolerancePct,
+        double objectiveTolerancePct,
+        double speedTolerancePct,
+        long speedSlackMs,
+        double allocationTolerancePct,
+        boolean runAndExit
+) {
+    public ReplayProperties {
+        if (corpusDirectory == null || corpusDirectory.isBlank()) corpusDirectory = "replay";
+        if (warmupRuns <= 0) warmupRuns = 15;
+        if (measuredRuns <= 0) measuredRuns = 10;
+        if (exactTimeLimitMs <= 0) exactTimeLimitMs = 10_000;
+        if (assignedTolerancePct < 0) assignedTolerancePct = 0;
+        if (objectiveTolerancePct < 0) objectiveTolerancePct = 0;
+        if (speedTolerancePct <= 0) speedTolerancePct = 25;
+        if (speedSlackMs <= 0) speedSlackMs = 10;
+        if (allocationTolerancePct <= 0) allocationTolerancePct = 20;
+    }
+}
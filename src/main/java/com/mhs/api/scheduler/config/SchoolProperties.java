@@ -0,0 +1,30 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+/**
+ * Schools served by the district deployment (maplewood.schools).
+ *
+ * With no shards listed the app serves one school, defaultSchool, from spring.datasource.url.
+ * Otherwise every shard names its school's SQLite URL and the node that owns it; an instance
+ * opens only the schools owned by its own node and points requests for the others at the owner,
+ * whose base URL comes from nodes.
+ */
+@ConfigurationProperties(prefix = "maplewood.schools")
+public record SchoolProperties(
+        String node,
+        String defaultSchool,
+        Map<String, String> nodes,
+        Map<String, Shard> shards
+) {
+    public record Shard(String url, String node) {}
+
+    public SchoolProperties {
+        if (node == null || node.isBlank()) node = "local";
+        if (defaultSchool == null || defaultSchool.isBlank()) defaultSchool = "default";
+        if (nodes == null) nodes = Map.of();
+        if (shards == null) shards = Map.of();
+    }
+}
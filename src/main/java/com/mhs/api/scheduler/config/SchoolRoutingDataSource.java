@@ -0,0 +1,27 @@
+package com.mhs.api.scheduler.config;
+
+import com.mhs.api.scheduler.service.SchoolRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Hands out connections to the database of the school the current thread works for. */
+public class SchoolRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final SchoolRegistry schools;
+
+    public SchoolRoutingDataSource(SchoolRegistry schools, Map<String, ? extends DataSource> bySchool) {
+        this.schools = schools;
+        setTargetDataSources(new HashMap<>(bySchool));
+        setDefaultTargetDataSource(bySchool.get(schools.home()));
+        // a school this node does not own must fail, not quietly land in the home school's file
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return schools.current();
+    }
+}
@@ -0,0 +1,16 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "maplewood.solver")
+public record SolverProperties(
+        long timeLimitMs,
+        long maxTimeLimitMs,
+        long rescheduleTimeLimitMs
+) {
+    public SolverProperties {
+        if (timeLimitMs <= 0) timeLimitMs = 10_000;
+        if (maxTimeLimitMs <= 0) maxTimeLimitMs = 60_000;
+        if (rescheduleTimeLimitMs <= 0) rescheduleTimeLimitMs = 500;
+    }
+}
@@ -0,0 +1,164 @@
+package com.mhs.api.scheduler.config;
+
+import com.mhs.api.scheduler.service.GroupCommitWriter;
+import com.mhs.api.scheduler.service.SchoolRegistry;
+import com.mhs.api.scheduler.service.SchoolWriters;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read/write split for SQLite (maplewood.sqlite.mode=split).
+ *
+ * The database runs in WAL mode so readers never wait on the writer. All writes go through
+ * one connection, and non-transactional writes are queued onto a single writer thread that
+ * group-commits them; reads use a separate pool of read-only connections. In "single" mode this class is skipped
+ * and Spring Boot builds the usual one-connection pool from spring.datasource; "memory" mode is
+ * {@link SqliteMemoryConfig}.
+ *
+ * Every school this node serves (see {@link SchoolRegistry}) gets its own file, writer pool,
+ * reader pool and writer thread. The data source beans route to the current school's pools.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "maplewood.sqlite", name = "mode", havingValue = "split", matchIfMissing = true)
+public class SqliteDataSourceConfig {
+
+    /** spring.datasource.hikari settings, applied to every school's writer pool. */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig sqliteWriterPoolSettings() {
+        return new HikariConfig();
+    }
+
+    @Bean(destroyMethod = "close")
+    public SchoolPools sqliteSchoolPools(SchoolRegistry schools, SqliteProperties sqlite,
+                                         HikariConfig sqliteWriterPoolSettings, MeterRegistry registry) throws SQLException {
+        SchoolPools pools = new SchoolPools();
+        boolean several = schools.localSchools().size() > 1;
+        try {
+            for (SchoolRegistry.School school : schools.localSchools()) {
+                String suffix = several ? "-" + school.key() : "";
+                HikariDataSource writer = writerPool(school.url(), sqlite, sqliteWriterPoolSettings, registry, "sqlite-writer" + suffix);
+                pools.writers.put(school.key(), writer);
+                // open the writer first so the file is already in WAL mode when read-only connections attach
+                try (Connection ignored = writer.getConnection()) {
+                    // nothing to do
+                }
+                pools.readers.put(school.key(), readerPool(school.url(), sqlite, registry, "sqlite-reader" + suffix));
+            }
+        } catch (SQLException | RuntimeException e) {
+            pools.close();
+            throw e;
+        }
+        return pools;
+    }
+
+    /** Writer pools behind a router; primary so @Transactional and the transaction manager bind to it. */
+    @Bean
+    @Primary
+    public DataSource dataSource(SchoolPools sqliteSchoolPools, SchoolRegistry schools) {
+        return new SchoolRoutingDataSource(schools, sqliteSchoolPools.writers);
+    }
+
+    @Bean
+    public DataSource readDataSource(SchoolPools sqliteSchoolPools, SchoolRegistry schools) {
+        return new SchoolRoutingDataSource(schools, sqliteSchoolPools.readers);
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public JdbcTemplate readJdbcTemplate(@Qualifier("readDataSource") DataSource readDataSource) {
+        return new JdbcTemplate(readDataSource);
+    }
+
+    /** One writer thread per school committing queued writes in groups; the bounded queues push back on callers. */
+    @Bean(destroyMethod = "close")
+    public SchoolWriters sqliteWriter(SchoolPools sqliteSchoolPools, SchoolRegistry schools, SqliteProperties sqlite,
+                                      MeterRegistry registry) {
+        Map<String, GroupCommitWriter> writers = new LinkedHashMap<>();
+        boolean several = schools.localSchools().size() > 1;
+        sqliteSchoolPools.writers.forEach((school, pool) -> writers.put(school, new GroupCommitWriter(
+                several ? "sqlite-writer-" + school : "sqlite-writer",
+                pool,
+                sqlite.writerQueueCapacity(),
+                sqlite.writerBatchSize(),
+                sqlite.writerBatchWindowMicros(),
+                sqlite.writerEnqueueTimeoutMs(),
+                GroupCommitWriter.CommitListener.NONE,
+                registry,
+                Tags.of("school", school))));
+        return new SchoolWriters(schools, writers);
+    }
+
+    private static HikariDataSource writerPool(String url, SqliteProperties sqlite, HikariConfig settings,
+                                               MeterRegistry registry, String name) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(sqlite.busyTimeoutMs());
+
+        HikariConfig hikari = new HikariConfig();
+        settings.copyStateTo(hikari);
+        hikari.setDataSource(sqliteDataSource(url, config));
+        hikari.setPoolName(name);
+        hikari.setMaximumPoolSize(1);
+        hikari.setMinimumIdle(1);
+        hikari.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return new HikariDataSource(hikari);
+    }
+
+    private static HikariDataSource readerPool(String url, SqliteProperties sqlite, MeterRegistry registry, String name) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        config.setBusyTimeout(sqlite.busyTimeoutMs());
+
+        HikariDataSource ds = new HikariDataSource();
+        ds.setDataSource(sqliteDataSource(url, config));
+        ds.setPoolName(name);
+        ds.setMaximumPoolSize(sqlite.readPoolSize());
+        ds.setMinimumIdle(1);
+        ds.setReadOnly(true);
+        ds.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        return ds;
+    }
+
+    private static SQLiteDataSource sqliteDataSource(String url, SQLiteConfig config) {
+        SQLiteDataSource ds = new SQLiteDataSource(config);
+        ds.setUrl(url);
+        return ds;
+    }
+
+    /** Each local school's writer and reader pool, closed together at shutdown. */
+    public static final class SchoolPools implements AutoCloseable {
+        private final Map<String, HikariDataSource> writers = new LinkedHashMap<>();
+        private final Map<String, HikariDataSource> readers = new LinkedHashMap<>();
+
+        @Override
+        public void close() {
+            readers.values().forEach(HikariDataSource::close);
+            writers.values().forEach(HikariDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.mhs.api.scheduler.config;
+
+import com.mhs.api.scheduler.service.GroupCommitWriter;
+import com.mhs.api.scheduler.service.SchoolRegistry;
+import com.mhs.api.scheduler.service.SchoolWriters;
+import com.mhs.api.scheduler.service.SqliteMemoryStore;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * In-memory SQLite (maplewood.sqlite.mode=memory).
+ *
+ * The school's database file (spring.datasource.url unless sharded) is loaded into a shared-cache memory database
+ * at startup and all traffic is served from there through a one-connection pool; writes still go
+ * through the group-commit writer, whose batches are journaled to disk. Snapshots write the file
+ * back on an interval, on POST /api/admin/snapshot and at shutdown.
+ *
+ * Bean order matters on shutdown: the writer drains first, then the pool closes, and only then
+ * does the store take its final snapshot.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "maplewood.sqlite", name = "mode", havingValue = "memory")
+public class SqliteMemoryConfig {
+
+    private static final String MEMORY_URL = "jdbc:sqlite:file:maplewood?mode=memory&cache=shared";
+
+    @Bean(destroyMethod = "close")
+    public SqliteMemoryStore sqliteMemoryStore(SchoolRegistry schools, SqliteProperties sqlite)
+            throws SQLException, IOException {
+        Path diskFile = diskFile(schools.localSchools().get(0).url());
+        Path journalFile = sqlite.journalFile() != null
+                ? Paths.get(sqlite.journalFile())
+                : diskFile.resolveSibling(diskFile.getFileName() + "-changes.jsonl");
+        SqliteMemoryStore store = new SqliteMemoryStore(diskFile, journalFile, MEMORY_URL);
+        store.open();
+        return store;
+    }
+
+    /** One pooled connection: shared-cache locking is table-level, so more connections would only collide. */
+    @Bean
+    @Primary
+    public HikariDataSource dataSource(SqliteMemoryStore store, SqliteProperties sqlite) {
+        SQLiteDataSource sqliteDs = new SQLiteDataSource();
+        sqliteDs.setUrl(store.memoryUrl());
+
+        HikariDataSource ds = new HikariDataSource();
+        ds.setDataSource(sqliteDs);
+        ds.setPoolName("sqlite-memory");
+        ds.setMaximumPoolSize(1);
+        ds.setMinimumIdle(1);
+        store.attach(ds, sqlite.snapshotIntervalSeconds());
+        return ds;
+    }
+
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    /** Journal appends ride on the group commit, so a batch costs one fsync. */
+    @Bean(destroyMethod = "close")
+    public SchoolWriters sqliteWriter(DataSource dataSource, SqliteMemoryStore store, SqliteProperties sqlite,
+                                      SchoolRegistry schools, MeterRegistry registry) {
+        // SchoolRegistry allows only one school in memory mode
+        return new SchoolWriters(schools, Map.of(schools.home(), new GroupCommitWriter(dataSource,
+                sqlite.writerQueueCapacity(),
+                sqlite.writerBatchSize(),
+                sqlite.writerBatchWindowMicros(),
+                sqlite.writerEnqueueTimeoutMs(),
+                store,
+                registry)));
+    }
+
+    private static Path diskFile(String url) {
+        String path = url.substring("jdbc:sqlite:".length());
+        int query = path.indexOf('?');
+        return Paths.get(query >= 0 ? path.substring(0, query) : path);
+    }
+}
@@ -0,0 +1,27 @@
+package com.mhs.api.scheduler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "maplewood.sqlite")
+public record SqliteProperties(
+        String mode,
+        int readPoolSize,
+        int busyTimeoutMs,
+        int writerQueueCapacity,
+        int writerBatchSize,
+        long writerBatchWindowMicros,
+        long writerEnqueueTimeoutMs,
+        long snapshotIntervalSeconds,
+        String journalFile
+) {
+    public SqliteProperties {
+        if (mode == null) mode = "split";
+        if (readPoolSize <= 0) readPoolSize = 4;
+        if (busyTimeoutMs <= 0) busyTimeoutMs = 5000;
+        if (writerQueueCapacity <= 0) writerQueueCapacity = 1000;
+        if (writerBatchSize <= 0) writerBatchSize = 64;
+        if (writerBatchWindowMicros < 0) writerBatchWindowMicros = 0;
+        if (writerEnqueueTimeoutMs <= 0) writerEnqueueTimeoutMs = 2000;
+        if (snapshotIntervalSeconds <= 0) snapshotIntervalSeconds = 60;
+    }
+}
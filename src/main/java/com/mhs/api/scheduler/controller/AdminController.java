@@ -0,0 +1,58 @@
+package com.mhs.api.scheduler.controller;
+
+import com.mhs.api.scheduler.model.ApiResponse;
+import com.mhs.api.scheduler.service.ReferenceCatalog;
+import com.mhs.api.scheduler.service.ReferenceData;
+import com.mhs.api.scheduler.service.SolverReplay;
+import com.mhs.api.scheduler.service.SqliteMemoryStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final ReferenceCatalog catalog;
+    private final Optional<SqliteMemoryStore> memoryStore;
+    private final SolverReplay replay;
+
+    // write the in-memory database back to disk now instead of waiting for the next interval
+    @PostMapping("/snapshot")
+    public ApiResponse snapshot() throws Exception {
+        if (memoryStore.isEmpty()) {
+            return new ApiResponse(false, "Snapshots are only taken in memory mode");
+        }
+        memoryStore.get().snapshot();
+        return new ApiResponse(true, "Snapshot written");
+    }
+
+    // pick up reference-data edits now rather than at the next change check
+    @PostMapping("/catalog/refresh")
+    public ApiResponse refreshCatalog() {
+        ReferenceData ref = catalog.refresh();
+        return new ApiResponse(true, "Reference catalog reloaded at version " + ref.version());
+    }
+
+    // freeze the semester's solver input into the replay corpus
+    @PostMapping("/replay/snapshots/{semesterId}")
+    public ApiResponse captureSolverSnapshot(@PathVariable int semesterId,
+                                             @RequestParam(required = false) String name) {
+        Path file = replay.capture(semesterId, name);
+        return new ApiResponse(true, "Solver snapshot written to " + file);
+    }
+
+    // re-solve the corpus and compare with the baseline; "passed" is false on any regression
+    @PostMapping("/replay")
+    public Map<String, Object> replay(@RequestParam(defaultValue = "false") boolean updateBaseline) {
+        return replay.replay(updateBaseline);
+    }
+}
@@ -0,0 +1,37 @@
+package com.mhs.api.scheduler.controller;
+
+import com.mhs.api.scheduler.model.ApiResponse;
+import com.mhs.api.scheduler.service.DbOverloadedException;
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // shed load fast and tell clients to come back shortly
+    @ExceptionHandler(DbOverloadedException.class)
+    public ResponseEntity<ApiResponse> overloaded(DbOverloadedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ApiResponse(false, ex.getMessage()));
+    }
+
+    // bad ids, unknown codes and out-of-range parameters are the client's to fix
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ApiResponse> badRequest(IllegalArgumentException ex) {
+        return ResponseEntity.badRequest().body(new ApiResponse(false, ex.getMessage()));
+    }
+
+    // query parameter records (SectionFilter) validate in their constructor; binding wraps what they throw
+    @ExceptionHandler(BeanInstantiationException.class)
+    public ResponseEntity<ApiResponse> badParameters(BeanInstantiationException ex) {
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException invalid) return badRequest(invalid);
+        }
+        throw ex;
+    }
+}
@@ -1,10 +1,23 @@
 package com.mhs.api.scheduler.controller;
 
-import com.mhs.api.scheduler.model.ScheduleSection;
-import com.mhs.api.scheduler.model.TimeSlot;
+import com.mhs.api.scheduler.model.AssignmentView;
+import com.mhs.api.scheduler.model.GenerateRequest;
+import com.mhs.api.scheduler.model.RescheduleRequest;
+import com.mhs.api.scheduler.model.SectionFilter;
+import com.mhs.api.scheduler.service.ChangeLog;
 import com.mhs.api.scheduler.service.DataService;
+import com.mhs.api.scheduler.service.FilteredListing;
+import com.mhs.api.scheduler.service.GenerationRecorder;
+import com.mhs.api.scheduler.service.ReferenceCatalog;
+import com.mhs.api.scheduler.service.RequestCoalescer;
 import com.mhs.api.scheduler.service.SchedulerService;
+import com.mhs.api.scheduler.service.SqlStatement;
+import com.mhs.api.scheduler.service.UtilizationService;
+import com.mhs.api.scheduler.utility.Util;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
@@ -14,48 +27,145 @@ import java.util.*;
 @RequestMapping("/api/schedule")
 public class SchedulerController {
 
+    // the page is chosen over scheduled sections, then all their assignment rows are fetched
+    private static final FilteredListing SEMESTER_SCHEDULE = new FilteredListing("assignments.forSemester",
+            AssignmentView.SELECT + "WHERE sa.section_id IN (SELECT s.id FROM sections s " +
+                    "WHERE s.semester_id = ? AND EXISTS (SELECT 1 FROM schedule_assignments x WHERE x.section_id = s.id)",
+            ") ORDER BY sa.section_id, ts.day, ts.start_time");
+    private static final SqlStatement SECTIONS_SCHEDULE = SqlStatement.of("assignments.forSections",
+            AssignmentView.SELECT + "WHERE sa.section_id IN (SELECT value FROM json_each(?)) ORDER BY sa.section_id, ts.day, ts.start_time");
+    private static final SqlStatement ENROLLMENT_COUNT = SqlStatement.of("enrollments.countForSection",
+            "SELECT COUNT(*) FROM student_enrollments WHERE section_id = ?");
+
     private final SchedulerService schedulerService;
     private final DataService dataService;
-
+    private final ReferenceCatalog catalog;
+    private final ChangeLog changeLog;
+    private final UtilizationService utilizationService;
+    private final RequestCoalescer coalescer;
+    private final GenerationRecorder recorder;
+    private final SerializedResponseCache responses;
+
+    /**
+     * Regenerates the semester. Calls for the same semester run one at a time; concurrent ones
+     * share a run according to maplewood.coalescing.generate-policy.
+     */
     @PostMapping("/generate")
-    public Map<String, Object> generate(@RequestBody Map<String, Integer> body) {
-        Integer semesterId = body.get("semesterId");
+    public Map<String, Object> generate(@RequestBody GenerateRequest body) {
+        Integer semesterId = body.semesterId();
         if (semesterId == null) throw new IllegalArgumentException("semesterId required");
-        return schedulerService.generate(semesterId);
+        if (!body.exact()) {
+            if (body.mode() != null && !body.mode().equalsIgnoreCase("greedy")) {
+                throw new IllegalArgumentException("Unknown mode: " + body.mode());
+            }
+            if (body.courses() != null) throw new IllegalArgumentException("courses requires mode=exact");
+        }
+        return coalescer.generate(semesterId, body, this::runGenerate);
+    }
+
+    private Map<String, Object> runGenerate(GenerateRequest body) {
+        int semesterId = body.semesterId();
+        Map<String, Object> result = recorder.record(semesterId, body.profiled(), () -> body.exact()
+                ? schedulerService.generateExact(semesterId, body.courses(), body.timeLimitMs())
+                : schedulerService.generate(semesterId));
+        // committed by now; have the statistics ready before an administrator opens them
+        utilizationService.refresh(semesterId);
+        return result;
     }
 
+    /**
+     * Repairs the semester after teachers or rooms become unavailable or sections are added,
+     * touching only the affected sections (see {@link SchedulerService#reschedule}). Queued with
+     * generate calls for the same semester.
+     */
+    @PostMapping("/{semesterId}/reschedule")
+    public Map<String, Object> reschedule(@PathVariable int semesterId, @RequestBody RescheduleRequest body) {
+        return coalescer.exclusive("reschedule", semesterId, body, change -> {
+            Map<String, Object> result = schedulerService.reschedule(semesterId, change);
+            utilizationService.refresh(semesterId);
+            return result;
+        });
+    }
+
+    /**
+     * Master schedule, one entry per scheduled section. Takes the {@link SectionFilter} query
+     * parameters; with limit set, the X-Next-After header holds the after value for the next page.
+     * Served from {@link SerializedResponseCache} until the semester or the reference data changes;
+     * identical requests arriving while one is being built share its result.
+     */
     @GetMapping("/{semesterId}")
-    public List<Map<String, Object>> getSchedule(@PathVariable int semesterId) {
-        List<Map<String, Object>> rows = dataService.query(
-                "SELECT sa.section_id, s.section_number, c.code as course_code, c.name as course_name, " +
-                        "t.first_name || ' ' || t.last_name as teacher_name, r.name as room_name, ts.day, ts.start_time, ts.end_time, s.capacity " +
-                        "FROM schedule_assignments sa " +
-                        "JOIN sections s ON s.id = sa.section_id " +
-                        "JOIN courses c ON c.id = s.course_id " +
-                        "JOIN teachers t ON t.id = sa.teacher_id " +
-                        "JOIN classrooms r ON r.id = sa.room_id " +
-                        "JOIN timeslots ts ON ts.id = sa.timeslot_id " +
-                        "WHERE s.semester_id = ? ORDER BY sa.section_id, ts.day, ts.start_time", semesterId);
+    public ResponseEntity<byte[]> getSchedule(@PathVariable int semesterId, SectionFilter filter, HttpServletRequest request)
+            throws HttpMediaTypeNotAcceptableException {
+        // read before building, so a change racing with the build leaves an entry that looks stale, never fresh
+        List<Long> version = List.of(changeLog.semesterVersion(semesterId), catalog.current().version());
+        return responses.get(request, List.of("schedule", semesterId, filter), version, () -> scheduleRows(semesterId, filter));
+    }
+
+    private ResponseEntity<List<Map<String, Object>>> scheduleRows(int semesterId, SectionFilter filter) {
+        return coalescer.read("schedule", List.of(semesterId, filter), () -> {
+            List<AssignmentView> rows = dataService.list(SEMESTER_SCHEDULE.statement(filter), new AssignmentView.Mapper(), filter.params(semesterId));
+            return Util.keysetPage(group(rows, filter.summary()), filter.limit(), s -> (Integer) s.get("section_id"));
+        });
+    }
 
+    private List<Map<String, Object>> getSchedule(int semesterId) {
+        return scheduleRows(semesterId, SectionFilter.NONE).getBody();
+    }
+
+    /**
+     * Sections of the semester that changed after version {@code since}, in the same shape as
+     * {@link #getSchedule}. Changed sections that no longer have a timetable are listed in
+     * removed_sections. Start with since=0 (or after full_reload) and pass back the returned version.
+     */
+    @GetMapping("/{semesterId}/changes")
+    public Map<String, Object> getScheduleChanges(@PathVariable int semesterId, @RequestParam long since) {
+        ChangeLog.Delta delta = changeLog.semesterChanges(semesterId, since);
+        List<Map<String, Object>> sections;
+        if (delta.fullReload()) {
+            sections = getSchedule(semesterId);
+        } else if (delta.sectionIds().isEmpty()) {
+            sections = List.of();
+        } else {
+            sections = group(dataService.list(SECTIONS_SCHEDULE, new AssignmentView.Mapper(), Util.jsonArray(delta.sectionIds())), false);
+        }
+        Set<Integer> present = new HashSet<>();
+        for (Map<String, Object> s : sections) present.add((Integer) s.get("section_id"));
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("version", delta.version());
+        out.put("full_reload", delta.fullReload());
+        out.put("sections", sections);
+        out.put("removed_sections", delta.sectionIds().stream().filter(id -> !present.contains(id)).toList());
+        return out;
+    }
+
+    /** Teacher hours, room occupancy by type, peak slots and idle capacity, cached per timetable version. */
+    @GetMapping("/{semesterId}/utilization")
+    public Map<String, Object> getUtilization(@PathVariable int semesterId) {
+        return utilizationService.forSemester(semesterId);
+    }
+
+    private List<Map<String, Object>> group(List<AssignmentView> rows, boolean summary) {
         Map<Integer, Map<String, Object>> out = new LinkedHashMap<>();
-        for (Map<String, Object> r : rows) {
-            Integer sid = (Integer) r.get("section_id");
+        for (AssignmentView r : rows) {
+            int sid = r.sectionId();
             Map<String, Object> bucket = out.computeIfAbsent(sid, k -> {
                 Map<String, Object> m = new LinkedHashMap<>();
-                m.put("course", r.get("course_code"));
-                m.put("course_name", r.get("course_name"));
-                m.put("section", r.get("section_number"));
-                m.put("teacher", r.get("teacher_name"));
-                m.put("room", r.get("room_name"));
-                m.put("capacity", r.get("capacity"));
+                m.put("section_id", sid);
+                m.put("course", r.courseCode());
+                m.put("course_name", r.courseName());
+                m.put("section", r.sectionNumber());
+                m.put("teacher", r.teacherName());
+                m.put("room", r.roomName());
+                m.put("capacity", r.capacity());
                 m.put("students_enrolled", getEnrollmentCountForSection(sid)); // helper below
-                m.put("schedule", new ArrayList<String>());
+                if (!summary) m.put("schedule", new ArrayList<String>());
                 return m;
             });
+            if (summary) continue;
             @SuppressWarnings("unchecked")
             List<String> sched = (List<String>) bucket.get("schedule");
-            String timestr = String.format("%s %s-%s", r.get("day"), r.get("start_time"), r.get("end_time"));
-            sched.add(timestr);
+            sched.add(r.day() + " " + r.startTime() + "-" + r.endTime());
         }
         return new ArrayList<>(out.values());
     }
@@ -63,10 +173,7 @@ public class SchedulerController {
     // helper method (add to controller or a service)
     private int getEnrollmentCountForSection(int sectionId) {
         try {
-            List<Map<String, Object>> res = dataService.query("SELECT COUNT(*) as cnt FROM student_enrollments WHERE section_id = ?", sectionId);
-            if (!res.isEmpty()) {
-                return ((Number) res.get(0).get("cnt")).intValue();
-            }
+            return dataService.queryInt(ENROLLMENT_COUNT, 0, sectionId);
         } catch (Exception ex) {
             // table may not exist yet; default to 0
         }
@@ -76,16 +183,9 @@ public class SchedulerController {
     @GetMapping("/get")
     public List<Map<String, Object>> getScheduleByName(@RequestParam String semester) {
         // Step 1 — Find semester by name
-        List<Map<String, Object>> res = dataService.query(
-                "SELECT id FROM semesters WHERE name = ?",
-                semester
-        );
-
-        if (res.isEmpty()) {
-            throw new IllegalArgumentException("Semester not found: " + semester);
-        }
-
-        int semesterId = ((Number) res.get(0).get("id")).intValue();
+        int semesterId = catalog.current().semesterByName(semester)
+                .orElseThrow(() -> new IllegalArgumentException("Semester not found: " + semester))
+                .id();
 
         // Step 2 — Reuse existing logic by calling getSchedule(semesterId)
         return getSchedule(semesterId);
@@ -0,0 +1,82 @@
+package com.mhs.api.scheduler.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhs.api.scheduler.model.ApiResponse;
+import com.mhs.api.scheduler.service.SchoolContext;
+import com.mhs.api.scheduler.service.SchoolRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Picks the school a request is for and runs the request in that school's context.
+ *
+ * The school comes from the X-School header or the school query parameter, else the configured
+ * default school. Unknown schools get 404. Schools owned by another node get 421 Misdirected
+ * Request with the owner in X-School-Node and, when its base URL is configured, the same
+ * request on that node in Location.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SchoolRoutingFilter extends OncePerRequestFilter {
+
+    public static final String SCHOOL_HEADER = "X-School";
+    public static final String NODE_HEADER = "X-School-Node";
+    private static final int MISDIRECTED_REQUEST = 421; // not in HttpStatus
+
+    private final SchoolRegistry schools;
+    private final ObjectMapper objectMapper;
+
+    public SchoolRoutingFilter(SchoolRegistry schools, ObjectMapper objectMapper) {
+        this.schools = schools;
+        this.objectMapper = objectMapper;
+    }
+
+    // health and metrics describe this process, whichever schools it serves
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String school = request.getHeader(SCHOOL_HEADER);
+        if (school == null || school.isBlank()) school = request.getParameter("school");
+        if (school == null || school.isBlank()) school = schools.defaultSchool();
+
+        var known = schools.school(school);
+        if (known.isEmpty()) {
+            reject(response, HttpStatus.NOT_FOUND.value(), "Unknown school: " + school);
+            return;
+        }
+        if (!schools.isLocal(school)) {
+            String node = known.get().node();
+            response.setHeader(NODE_HEADER, node);
+            schools.nodeUrl(node).ifPresent(base -> response.setHeader(HttpHeaders.LOCATION,
+                    base + request.getRequestURI() + (request.getQueryString() != null ? "?" + request.getQueryString() : "")));
+            reject(response, MISDIRECTED_REQUEST, "School " + school + " is served by node " + node);
+            return;
+        }
+
+        try (SchoolContext.Scope ignored = SchoolContext.enter(school)) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    private void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiResponse(false, message));
+    }
+}
@@ -0,0 +1,141 @@
+package com.mhs.api.scheduler.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mhs.api.scheduler.service.SchoolRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps hot responses as ready-to-send bytes, per wire format.
+ *
+ * The format follows the Accept header: JSON, Smile (application/x-jackson-smile) or CBOR
+ * (application/cbor), serialized with the same settings as the message converters use. When
+ * compression is on (server.compression) and the body reaches min-response-size, a gzipped copy
+ * is kept too and sent to clients that accept gzip, so a hit costs neither serialization nor
+ * compression. An entry is reused while the caller's version matches the one it was built at;
+ * the least recently used entries go once there are more than {@value #MAX_ENTRIES}.
+ */
+@Component
+public class SerializedResponseCache {
+
+    public static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final int MAX_ENTRIES = 512;
+
+    private record Key(String school, Object key, MediaType type) {}
+
+    private record Entry(Object version, byte[] body, byte[] gzipped, HttpHeaders headers) {}
+
+    private final SchoolRegistry schools;
+    private final Map<MediaType, ObjectMapper> mappers = new LinkedHashMap<>(); // in order of preference
+    private final boolean compress;
+    private final long minCompressBytes;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public SerializedResponseCache(SchoolRegistry schools, ObjectMapper objectMapper,
+                                   ObjectProvider<Jackson2ObjectMapperBuilder> builders, ServerProperties server) {
+        this.schools = schools;
+        mappers.put(MediaType.APPLICATION_JSON, objectMapper);
+        mappers.put(SMILE, builders.getObject().factory(new SmileFactory()).indentOutput(false).build());
+        mappers.put(MediaType.APPLICATION_CBOR, builders.getObject().factory(new CBORFactory()).indentOutput(false).build());
+        Compression compression = server.getCompression();
+        this.compress = compression.getEnabled();
+        this.minCompressBytes = compression.getMinResponseSize().toBytes();
+    }
+
+    /**
+     * The response {@code build} gives, from cache when an entry for this school, key and format
+     * was stored at {@code version}. Its headers are kept with the bytes.
+     */
+    public ResponseEntity<byte[]> get(HttpServletRequest request, Object key, Object version,
+                                      Supplier<? extends ResponseEntity<?>> build) throws HttpMediaTypeNotAcceptableException {
+        MediaType type = negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        Key cacheKey = new Key(schools.current(), key, type);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(cacheKey);
+        }
+        if (entry == null || !entry.version().equals(version)) {
+            entry = serialize(type, version, build.get());
+            synchronized (entries) {
+                entries.put(cacheKey, entry);
+            }
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .headers(entry.headers())
+                .contentType(type)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        String encodings = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (entry.gzipped() != null && encodings != null && encodings.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.gzipped());
+        }
+        return response.body(entry.body());
+    }
+
+    private Entry serialize(MediaType type, Object version, ResponseEntity<?> built) {
+        try {
+            byte[] body = mappers.get(type).writeValueAsBytes(built.getBody());
+            byte[] gzipped = compress && body.length >= minCompressBytes ? gzip(body) : null;
+            return new Entry(version, body, gzipped, HttpHeaders.readOnlyHttpHeaders(built.getHeaders()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response: " + e.getMessage(), e);
+        }
+    }
+
+    // highest quality first; among equals, the order of mappers
+    private MediaType negotiate(String accept) throws HttpMediaTypeNotAcceptableException {
+        if (accept == null || accept.isBlank()) return MediaType.APPLICATION_JSON;
+        List<MediaType> wanted;
+        try {
+            wanted = MediaType.parseMediaTypes(accept).stream()
+                    .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                    .toList();
+        } catch (InvalidMediaTypeException e) {
+            throw new HttpMediaTypeNotAcceptableException(e.getMessage());
+        }
+        for (MediaType w : wanted) {
+            if (w.getQualityValue() == 0) continue;
+            for (MediaType offered : mappers.keySet()) {
+                if (w.includes(offered)) return offered;
+            }
+        }
+        throw new HttpMediaTypeNotAcceptableException(List.copyOf(mappers.keySet()));
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,7 +1,12 @@
 package com.mhs.api.scheduler.controller;
 
 import com.mhs.api.scheduler.dto.*;
+import com.mhs.api.scheduler.model.SectionFilter;
+import com.mhs.api.scheduler.service.GraduationPlannerService;
 import com.mhs.api.scheduler.service.StudentPlannerService;
+import com.mhs.api.scheduler.service.TimetableOptionsService;
+import com.mhs.api.scheduler.utility.Util;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -11,9 +16,15 @@ import java.util.List;
 public class StudentPlannerController {
 
     private final StudentPlannerService plannerService;
+    private final GraduationPlannerService graduationPlannerService;
+    private final TimetableOptionsService timetableOptionsService;
 
-    public StudentPlannerController(StudentPlannerService plannerService) {
+    public StudentPlannerController(StudentPlannerService plannerService,
+                                    GraduationPlannerService graduationPlannerService,
+                                    TimetableOptionsService timetableOptionsService) {
         this.plannerService = plannerService;
+        this.graduationPlannerService = graduationPlannerService;
+        this.timetableOptionsService = timetableOptionsService;
     }
 
     @GetMapping("/semesters")
@@ -21,20 +32,43 @@ public class StudentPlannerController {
         return plannerService.getAllSemesters();
     }
 
+    // both listings take the SectionFilter query parameters; paged responses carry X-Next-After
     @GetMapping("/{studentId}/available-sections")
-    public List<SectionDto> getAvailableSections(
+    public ResponseEntity<List<SectionDto>> getAvailableSections(
             @PathVariable int studentId,
-            @RequestParam int semesterId
+            @RequestParam int semesterId,
+            SectionFilter filter
     ) {
-        return plannerService.listAvailableSections(studentId, semesterId);
+        return Util.keysetPage(plannerService.listAvailableSections(studentId, semesterId, filter),
+                filter.limit(), SectionDto::sectionId);
     }
 
     @GetMapping("/{studentId}/schedule")
-    public List<StudentScheduleItemDto> getSchedule(
+    public ResponseEntity<List<StudentScheduleItemDto>> getSchedule(
             @PathVariable int studentId,
-            @RequestParam int semesterId
+            @RequestParam int semesterId,
+            SectionFilter filter
     ) {
-        return plannerService.getStudentSchedule(studentId, semesterId);
+        return Util.keysetPage(plannerService.getStudentSchedule(studentId, semesterId, filter),
+                filter.limit(), StudentScheduleItemDto::sectionId);
+    }
+
+    @GetMapping("/{studentId}/schedule/changes")
+    public StudentScheduleChangesDto getScheduleChanges(
+            @PathVariable int studentId,
+            @RequestParam int semesterId,
+            @RequestParam long since
+    ) {
+        return plannerService.getStudentScheduleChanges(studentId, semesterId, since);
+    }
+
+    // conflict-free section combinations for a set of courses, best first
+    @PostMapping("/{studentId}/timetable-options")
+    public TimetableOptionsDto getTimetableOptions(
+            @PathVariable int studentId,
+            @RequestBody TimetableOptionsRequest request
+    ) {
+        return timetableOptionsService.options(studentId, request.semesterId(), request.courses(), request.limit());
     }
 
     @GetMapping("/{studentId}/progress")
@@ -42,6 +76,11 @@ public class StudentPlannerController {
         return plannerService.getProgress(studentId);
     }
 
+    @GetMapping("/{studentId}/graduation-plan")
+    public GraduationPlanDto getGraduationPlan(@PathVariable int studentId) {
+        return graduationPlannerService.plan(studentId);
+    }
+
     @PostMapping("/enroll")
     public boolean enroll(@RequestBody EnrollRequest request) {
         return plannerService.enrollStudent(request.studentId(), request.sectionId());
@@ -55,4 +94,5 @@ public class StudentPlannerController {
     // Request DTOs
     public record EnrollRequest(int studentId, int sectionId, int semesterId) {}
     public record DropRequest(int studentId, int sectionId) {}
+    public record TimetableOptionsRequest(int semesterId, List<String> courses, Integer limit) {}
 }
@@ -0,0 +1,15 @@
+package com.mhs.api.scheduler.dto;
+
+import java.util.List;
+
+// Graduation Plan DTO
+public record GraduationPlanDto(
+        int studentId,
+        boolean feasible,
+        boolean optimal,
+        int semestersNeeded,
+        String expectedGraduation, // e.g., "Spring 2027"
+        double creditsEarned,
+        double creditsPlanned,
+        List<PlannedSemesterDto> semesters
+) {}
@@ -0,0 +1,11 @@
+package com.mhs.api.scheduler.dto;
+
+import java.util.List;
+
+// One semester of a graduation plan
+public record PlannedSemesterDto(
+        String semester, // e.g., "Fall 2024"
+        int gradeLevel,
+        List<String> courseCodes,
+        double credits
+) {}
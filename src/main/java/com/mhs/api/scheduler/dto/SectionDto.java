@@ -1,11 +1,14 @@
 package com.mhs.api.scheduler.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 // Section DTO
 public record SectionDto(
         int sectionId,
         String courseCode,
         String courseName,
-        String schedule,  // e.g., "Mon 10:00-11:30"
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        String schedule,  // e.g., "Mon 10:00-11:30"; left out of view=summary
         int seatsLeft,
         String teacher,
         boolean prereqsMet,
@@ -0,0 +1,11 @@
+package com.mhs.api.scheduler.dto;
+
+import java.util.List;
+
+// Student Schedule Changes DTO: items to upsert by sectionId, sections to remove, and the version to poll from next
+public record StudentScheduleChangesDto(
+        long version,
+        boolean fullReload,   // replace the whole schedule with items
+        List<StudentScheduleItemDto> items,
+        List<Integer> removedSectionIds
+) {}
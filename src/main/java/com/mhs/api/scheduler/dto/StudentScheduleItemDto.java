@@ -1,11 +1,14 @@
 package com.mhs.api.scheduler.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 // Student Schedule Item DTO
 public record StudentScheduleItemDto(
         int sectionId,
         String courseCode,
         String courseName,
-        String schedule, // e.g., "Tue 14:00-15:30"
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        String schedule, // e.g., "Tue 14:00-15:30"; left out of view=summary
         String teacher,
         boolean timeConflict
 ) {}
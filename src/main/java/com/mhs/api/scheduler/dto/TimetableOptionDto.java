@@ -0,0 +1,12 @@
+package com.mhs.api.scheduler.dto;
+
+import java.util.List;
+
+// One conflict-free combination: a section per requested course
+public record TimetableOptionDto(
+        int rank,
+        int daysOnCampus,
+        int gapHours,     // free slots between a day's first and last class, summed over the week
+        int minSeatsLeft,
+        List<TimetableSectionDto> sections
+) {}
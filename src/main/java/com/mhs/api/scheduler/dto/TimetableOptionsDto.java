@@ -0,0 +1,14 @@
+package com.mhs.api.scheduler.dto;
+
+import java.util.List;
+
+// Timetable Options DTO: conflict-free ways to take a set of courses together, best first
+public record TimetableOptionsDto(
+        int studentId,
+        int semesterId,
+        List<String> courseCodes,
+        List<String> unavailableCourses, // no open section fits around the student's other classes
+        int optionsFound,
+        boolean exhaustive,              // false when the search budget ran out before every combination was ranked
+        List<TimetableOptionDto> options
+) {}
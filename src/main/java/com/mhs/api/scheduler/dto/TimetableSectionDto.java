@@ -0,0 +1,11 @@
+package com.mhs.api.scheduler.dto;
+
+// A section as listed in a timetable option
+public record TimetableSectionDto(
+        int sectionId,
+        String courseCode,
+        int sectionNumber,
+        String schedule,  // e.g., "Mon 09:00-11:00, Wed 13:00-14:00"
+        String teacher,
+        int seatsLeft
+) {}
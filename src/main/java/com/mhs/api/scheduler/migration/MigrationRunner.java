@@ -0,0 +1,189 @@
+package com.mhs.api.scheduler.migration;
+
+import com.mhs.api.scheduler.service.SchoolContext;
+import com.mhs.api.scheduler.service.SchoolRegistry;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Applies versioned SQL scripts from classpath:db/migration at startup.
+ *
+ * Scripts are named V{version}__{description}.sql and run once each, in version order, inside a
+ * transaction; applied versions are recorded in schema_version. Afterwards every hot-path query
+ * is checked with EXPLAIN QUERY PLAN, and startup fails if one no longer uses the index it was
+ * written for: a dropped index or a rewritten query otherwise degrades to a scan without a word.
+ *
+ * Statements are split on ";" unless the script's first line is "-- separator: <token>"; trigger
+ * bodies contain semicolons of their own and need a different separator.
+ */
+@Component
+public class MigrationRunner implements InitializingBean {
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final Pattern SEPARATOR = Pattern.compile("^--\\s*separator:\\s*(\\S+)");
+
+    // index -> a query shaped like the ones that rely on it. UNIQUE constraints carry their own
+    // index (sqlite_autoindex_<table>_<n>, numbered in declaration order); the lookups they serve
+    // are probed against those rather than against a duplicate index the planner never picks.
+    private static final Map<String, String> INDEX_PROBES = new LinkedHashMap<>();
+    static {
+        // UNIQUE(section_id, timeslot_id)
+        INDEX_PROBES.put("sqlite_autoindex_schedule_assignments_1",
+                "SELECT timeslot_id FROM schedule_assignments WHERE section_id = ?");
+        // UNIQUE(room_id, timeslot_id)
+        INDEX_PROBES.put("sqlite_autoindex_schedule_assignments_3",
+                "SELECT section_id FROM schedule_assignments WHERE timeslot_id = ? AND room_id = ?");
+        INDEX_PROBES.put("idx_sections_semester_course",
+                "SELECT course_id, COUNT(*) FROM sections WHERE semester_id = ? GROUP BY course_id");
+        INDEX_PROBES.put("idx_student_course_history_student_status",
+                "SELECT DISTINCT course_id FROM student_course_history WHERE student_id = ? AND status = 'passed'");
+        INDEX_PROBES.put("idx_student_schedule_student_section",
+                "SELECT COUNT(*) FROM student_schedule WHERE student_id = ? AND section_id = ?");
+        // SectionFilter's day, teacher and room type conditions
+        INDEX_PROBES.put("idx_timeslots_day",
+                "SELECT fa.section_id FROM timeslots t JOIN schedule_assignments fa ON fa.timeslot_id = t.id WHERE t.day = ?");
+        // UNIQUE(teacher_id, timeslot_id)
+        INDEX_PROBES.put("sqlite_autoindex_schedule_assignments_2",
+                "SELECT fa.section_id FROM schedule_assignments fa WHERE fa.teacher_id = ?");
+        INDEX_PROBES.put("idx_classrooms_room_type",
+                "SELECT fa.section_id FROM classrooms r JOIN schedule_assignments fa ON fa.room_id = r.id " +
+                        "WHERE r.room_type_id = (SELECT id FROM room_types WHERE name = ?)");
+    }
+
+    private final DataSource dataSource;
+    private final SchoolRegistry schools;
+
+    public MigrationRunner(DataSource dataSource, SchoolRegistry schools) {
+        this.dataSource = dataSource;
+        this.schools = schools;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        // every school this node serves has its own file; the data source follows SchoolContext
+        for (SchoolRegistry.School school : schools.localSchools()) {
+            try (SchoolContext.Scope ignored = SchoolContext.enter(school.key());
+                 Connection con = dataSource.getConnection()) {
+                migrate(con);
+                verifyIndexes(con);
+            }
+        }
+    }
+
+    private void migrate(Connection con) throws SQLException, IOException {
+        try (Statement st = con.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INTEGER PRIMARY KEY, description TEXT NOT NULL, checksum INTEGER NOT NULL, " +
+                    "applied_at DATETIME DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) applied.put(rs.getInt(1), rs.getLong(2));
+        }
+
+        for (Migration m : discover()) {
+            Long checksum = applied.get(m.version());
+            if (checksum != null) {
+                if (checksum != m.checksum()) {
+                    System.out.println("⚠️ Migration V" + m.version() + " changed after it was applied");
+                }
+                continue;
+            }
+            apply(con, m);
+        }
+    }
+
+    private void apply(Connection con, Migration m) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            ScriptUtils.executeSqlScript(con, new EncodedResource(m.script(), StandardCharsets.UTF_8), false, false,
+                    ScriptUtils.DEFAULT_COMMENT_PREFIX, m.separator(),
+                    ScriptUtils.DEFAULT_BLOCK_COMMENT_START_DELIMITER, ScriptUtils.DEFAULT_BLOCK_COMMENT_END_DELIMITER);
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+                ps.setInt(1, m.version());
+                ps.setString(2, m.description());
+                ps.setLong(3, m.checksum());
+                ps.executeUpdate();
+            }
+            con.commit();
+            System.out.println("✅ Applied migration V" + m.version() + " " + m.description());
+        } catch (RuntimeException | SQLException ex) {
+            con.rollback();
+            throw new IllegalStateException("Migration V" + m.version() + " failed: " + ex.getMessage(), ex);
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    private List<Migration> discover() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/V*__*.sql");
+        List<Migration> migrations = new ArrayList<>();
+        for (Resource r : resources) {
+            Matcher matcher = FILE_NAME.matcher(Objects.requireNonNull(r.getFilename()));
+            if (!matcher.matches()) continue;
+            byte[] content = StreamUtils.copyToByteArray(r.getInputStream());
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            Matcher separator = SEPARATOR.matcher(new String(content, StandardCharsets.UTF_8));
+            migrations.add(new Migration(
+                    Integer.parseInt(matcher.group(1)),
+                    matcher.group(2).replace('_', ' '),
+                    crc.getValue(),
+                    separator.find() ? separator.group(1) : ScriptUtils.DEFAULT_STATEMENT_SEPARATOR,
+                    r));
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        return migrations;
+    }
+
+    private void verifyIndexes(Connection con) throws SQLException {
+        List<String> missed = new ArrayList<>();
+        for (Map.Entry<String, String> probe : INDEX_PROBES.entrySet()) {
+            String plan = explain(con, probe.getValue());
+            // "INDEX name " so that ..._1 does not also accept ..._10
+            if (!(plan + " ").contains("INDEX " + probe.getKey() + " ")) {
+                System.out.println("❌ " + probe.getKey() + " not used by \"" + probe.getValue() + "\": " + plan);
+                missed.add(probe.getKey());
+            }
+        }
+        if (!missed.isEmpty()) {
+            throw new IllegalStateException("Hot-path queries no longer use their indexes: " + missed);
+        }
+    }
+
+    private static String explain(Connection con, String sql) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            int params = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= params; i++) ps.setInt(i, 1);
+            StringJoiner details = new StringJoiner("; ");
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) details.add(rs.getString("detail"));
+            }
+            return details.toString();
+        }
+    }
+
+    private record Migration(int version, String description, long checksum, String separator, Resource script) {}
+}
@@ -0,0 +1,50 @@
+package com.mhs.api.scheduler.model;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.mhs.api.scheduler.utility.Util.getInt;
+
+/** One (section, timeslot) row of the master schedule joined with its names. */
+public record AssignmentView(
+        int sectionId,
+        int sectionNumber,
+        String courseCode,
+        String courseName,
+        String teacherName,
+        String roomName,
+        String day,
+        String startTime,
+        String endTime,
+        int capacity
+) {
+    public static final String SELECT =
+            "SELECT sa.section_id, s.section_number, c.code AS course_code, c.name AS course_name, " +
+            "t.first_name || ' ' || t.last_name AS teacher_name, r.name AS room_name, ts.day, ts.start_time, ts.end_time, s.capacity " +
+            "FROM schedule_assignments sa " +
+            "JOIN sections s ON s.id = sa.section_id " +
+            "JOIN courses c ON c.id = s.course_id " +
+            "JOIN teachers t ON t.id = sa.teacher_id " +
+            "JOIN classrooms r ON r.id = sa.room_id " +
+            "JOIN timeslots ts ON ts.id = sa.timeslot_id ";
+
+    public static class Mapper implements RowMapper<AssignmentView> {
+        @Override
+        public AssignmentView mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new AssignmentView(
+                    rs.getInt("section_id"),
+                    rs.getInt("section_number"),
+                    rs.getString("course_code"),
+                    rs.getString("course_name"),
+                    rs.getString("teacher_name"),
+                    rs.getString("room_name"),
+                    rs.getString("day"),
+                    rs.getString("start_time"),
+                    rs.getString("end_time"),
+                    getInt(rs, "capacity", 10)
+            );
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.mhs.api.scheduler.model;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.mhs.api.scheduler.utility.Util.getInt;
+
+public record Classroom(int id, String name, int roomTypeId, int capacity) {
+
+    public static final String COLUMNS = "id, name, room_type_id, capacity";
+
+    public static class Mapper implements RowMapper<Classroom> {
+        @Override
+        public Classroom mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new Classroom(
+                    rs.getInt("id"),
+                    rs.getString("name"),
+                    getInt(rs, "room_type_id", -1),
+                    getInt(rs, "capacity", 10)
+            );
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.mhs.api.scheduler.model;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.mhs.api.scheduler.utility.Util.getInt;
+
+public record Course(
+        int id,
+        String code,
+        String name,
+        double credits,
+        int hoursPerWeek,
+        int specializationId,
+        int prerequisiteId,   // -1 when the course has no prerequisite
+        boolean core,
+        int gradeLevelMin,
+        int gradeLevelMax,
+        int semesterOrder     // 1 = Fall, 2 = Spring
+) {
+    public static final String COLUMNS =
+            "id, code, name, credits, hours_per_week, specialization_id, prerequisite_id, course_type, " +
+            "grade_level_min, grade_level_max, semester_order";
+
+    public static class Mapper implements RowMapper<Course> {
+        @Override
+        public Course mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new Course(
+                    rs.getInt("id"),
+                    rs.getString("code"),
+                    rs.getString("name"),
+                    rs.getDouble("credits"),
+                    getInt(rs, "hours_per_week", 3),
+                    getInt(rs, "specialization_id", -1),
+                    getInt(rs, "prerequisite_id", -1),
+                    "core".equals(rs.getString("course_type")),
+                    getInt(rs, "grade_level_min", 9),
+                    getInt(rs, "grade_level_max", 12),
+                    rs.getInt("semester_order")
+            );
+        }
+    }
+}
@@ -1,7 +1,26 @@
 package com.mhs.api.scheduler.model;
 
-public class GenerateRequest {
+import java.util.List;
 
-    public int semesterId;
+/**
+ * Body of POST /api/schedule/generate.
+ *
+ * mode is "greedy" (default) or "exact"; courses (codes) and timeLimitMs only apply to exact,
+ * which reschedules just those courses' sections when courses is given. profile=true records
+ * the run with Java Flight Recorder (see GenerationRecorder).
+ */
+public record GenerateRequest(
+        Integer semesterId,
+        String mode,
+        List<String> courses,
+        Long timeLimitMs,
+        Boolean profile
+) {
+    public boolean exact() {
+        return "exact".equalsIgnoreCase(mode);
+    }
 
+    public boolean profiled() {
+        return profile != null && profile;
+    }
 }
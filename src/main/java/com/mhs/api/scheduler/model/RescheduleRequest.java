@@ -0,0 +1,26 @@
+package com.mhs.api.scheduler.model;
+
+import java.util.List;
+
+/**
+ * Body of POST /api/schedule/{semesterId}/reschedule: what changed since the semester was
+ * generated. Teachers and rooms are ids; addedSections are sections of the semester to place
+ * (or place again) around the existing timetable. timeLimitMs bounds the search for sections
+ * that have to move.
+ */
+public record RescheduleRequest(
+        List<Integer> unavailableTeachers,
+        List<Integer> closedRooms,
+        List<Integer> addedSections,
+        Long timeLimitMs
+) {
+    public RescheduleRequest {
+        unavailableTeachers = unavailableTeachers == null ? List.of() : List.copyOf(unavailableTeachers);
+        closedRooms = closedRooms == null ? List.of() : List.copyOf(closedRooms);
+        addedSections = addedSections == null ? List.of() : List.copyOf(addedSections);
+    }
+
+    public boolean isEmpty() {
+        return unavailableTeachers.isEmpty() && closedRooms.isEmpty() && addedSections.isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package com.mhs.api.scheduler.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Optional query parameters shared by the section and schedule listings.
+ *
+ * All filters are applied in SQL through {@link #where(int)}, which expects the listing's sections
+ * aliased {@code s}. Only the filters a request sets become conditions, so each combination
+ * ({@link #shape()}) is its own statement and the planner can pick the index that suits it. Paging is keyset on section id: pass the last
+ * section id of a page as {@code after} to get the next; with no {@code limit} everything
+ * after it is returned. {@code view=summary} leaves out the schedule text/arrays.
+ */
+public record SectionFilter(
+        String course,          // course code, any case
+        String specialization,  // e.g. "Mathematics"
+        String day,             // e.g. "Mon": sections meeting that day
+        Integer teacherId,
+        String roomType,        // e.g. "science_lab"
+        Boolean openOnly,       // only sections with seats left
+        Integer after,
+        Integer limit,
+        String view
+) {
+    public static final int MAX_LIMIT = 500;
+    public static final SectionFilter NONE = new SectionFilter(null, null, null, null, null, null, null, null, null);
+
+    // one condition per optional filter, in bit order of shape(); each is written so the filter's
+    // own index can drive it (course and specialization resolve to course ids, day, teacher and
+    // room type to the section ids of matching assignments)
+    private static final String[] CONDITIONS = {
+            " AND s.course_id = (SELECT id FROM courses WHERE code = ?)",
+            " AND s.course_id IN (SELECT id FROM courses WHERE specialization_id = (SELECT id FROM specializations WHERE name = ?))",
+            " AND s.id IN (SELECT fa.section_id FROM timeslots t JOIN schedule_assignments fa ON fa.timeslot_id = t.id WHERE t.day = ?)",
+            " AND s.id IN (SELECT fa.section_id FROM schedule_assignments fa WHERE fa.teacher_id = ?)",
+            " AND s.id IN (SELECT fa.section_id FROM classrooms r JOIN schedule_assignments fa ON fa.room_id = r.id " +
+                    "WHERE r.room_type_id = (SELECT id FROM room_types WHERE name = ?))",
+            " AND s.seats_left > 0"
+    };
+    /** Number of distinct filter combinations, and so of statements per listing. */
+    public static final int SHAPES = 1 << CONDITIONS.length;
+    public static final String ORDER_AND_LIMIT = " ORDER BY s.id LIMIT ?";
+
+    public SectionFilter {
+        if (course != null) course = course.trim().toUpperCase(Locale.ROOT);
+        if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (view != null && !view.equalsIgnoreCase("full") && !view.equalsIgnoreCase("summary")) {
+            throw new IllegalArgumentException("Unknown view: " + view);
+        }
+    }
+
+    public boolean summary() {
+        return "summary".equalsIgnoreCase(view);
+    }
+
+    /** Which filters are set, one bit per entry of {@link #CONDITIONS}. */
+    public int shape() {
+        int shape = 0;
+        if (course != null) shape |= 1;
+        if (specialization != null) shape |= 1 << 1;
+        if (day != null) shape |= 1 << 2;
+        if (teacherId != null) shape |= 1 << 3;
+        if (roomType != null) shape |= 1 << 4;
+        if (openOnly != null && openOnly) shape |= 1 << 5;
+        return shape;
+    }
+
+    /** The conditions of the filters in {@code shape}, then the keyset bound; precedes {@link #ORDER_AND_LIMIT}. */
+    public static String where(int shape) {
+        StringBuilder sql = new StringBuilder();
+        for (int i = 0; i < CONDITIONS.length; i++) {
+            if ((shape & 1 << i) != 0) sql.append(CONDITIONS[i]);
+        }
+        return sql.append(" AND s.id > ?").toString();
+    }
+
+    /** {@code leading} (the listing's own parameters), then those of {@link #where(int)} for this filter's shape and {@link #ORDER_AND_LIMIT}. */
+    public Object[] params(Object... leading) {
+        List<Object> all = new ArrayList<>(Arrays.asList(leading));
+        for (Object value : new Object[]{course, specialization, day, teacherId, roomType}) {
+            if (value != null) all.add(value);
+        }
+        all.add(after == null ? 0 : after);
+        // one row past the page tells the caller whether there is a next one; -1 is no limit in SQLite
+        all.add(limit == null ? -1 : limit + 1);
+        return all.toArray();
+    }
+}
@@ -0,0 +1,43 @@
+package com.mhs.api.scheduler.model;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.mhs.api.scheduler.utility.Util.getInt;
+
+/** A section together with the course facts the scheduler needs to place it. */
+public record SectionInput(
+        int id,
+        int courseId,
+        int sectionNumber,
+        int capacity,
+        int courseHours,
+        int preferredRoomTypeId,  // -1 when any room will do
+        int courseSpecializationId,
+        String courseCode,
+        String courseName
+) {
+    public static final String SELECT =
+            "SELECT s.id, s.course_id, s.section_number, s.capacity, s.preferred_room_type_id, " +
+            "c.hours_per_week AS course_hours, c.specialization_id AS course_spec, c.code AS course_code, c.name AS course_name " +
+            "FROM sections s JOIN courses c ON s.course_id = c.id ";
+
+    public static class Mapper implements RowMapper<SectionInput> {
+        @Override
+        public SectionInput mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new SectionInput(
+                    rs.getInt("id"),
+                    rs.getInt("course_id"),
+                    rs.getInt("section_number"),
+                    getInt(rs, "capacity", 10),
+                    getInt(rs, "course_hours", 3),
+                    getInt(rs, "preferred_room_type_id", -1),
+                    getInt(rs, "course_spec", -1),
+                    rs.getString("course_code"),
+                    rs.getString("course_name")
+            );
+        }
+    }
+}
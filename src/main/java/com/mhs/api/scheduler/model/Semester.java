@@ -1,19 +1,33 @@
 package com.mhs.api.scheduler.model;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class Semester {
-    private int id;
-    private String name;
-    private int year;
-    private int orderInYear;
-    private String startDate; // or LocalDate if you prefer
-    private String endDate;   // or LocalDate if you prefer
-    private boolean isActive;
-}
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public record Semester(
+        int id,
+        String name,
+        int year,
+        int orderInYear,
+        String startDate,
+        String endDate,
+        boolean active
+) {
+    public static final String COLUMNS = "id, name, year, order_in_year, start_date, end_date, is_active";
 
+    public static class Mapper implements RowMapper<Semester> {
+        @Override
+        public Semester mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new Semester(
+                    rs.getInt("id"),
+                    rs.getString("name"),
+                    rs.getInt("year"),
+                    rs.getInt("order_in_year"),
+                    rs.getString("start_date"),
+                    rs.getString("end_date"),
+                    rs.getInt("is_active") == 1
+            );
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.mhs.api.scheduler.model;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.mhs.api.scheduler.utility.Util.getInt;
+
+public record Teacher(int id, String firstName, String lastName, int specializationId) {
+
+    public static final String COLUMNS = "id, first_name, last_name, specialization_id";
+
+    public String fullName() {
+        return firstName + " " + lastName;
+    }
+
+    public static class Mapper implements RowMapper<Teacher> {
+        @Override
+        public Teacher mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new Teacher(
+                    rs.getInt("id"),
+                    rs.getString("first_name"),
+                    rs.getString("last_name"),
+                    getInt(rs, "specialization_id", -1)
+            );
+        }
+    }
+}
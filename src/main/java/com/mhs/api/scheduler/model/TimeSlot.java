@@ -1,11 +1,23 @@
 package com.mhs.api.scheduler.model;
 
-public class TimeSlot {
+import org.springframework.jdbc.core.RowMapper;
 
-    public String day;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 
-    public String start;
+public record TimeSlot(int id, String day, String start, String end) {
 
-    public String end;
+    public static final String COLUMNS = "id, day, start_time, end_time";
 
+    public static class Mapper implements RowMapper<TimeSlot> {
+        @Override
+        public TimeSlot mapRow(ResultSet rs, int rowNum) throws SQLException {
+            return new TimeSlot(
+                    rs.getInt("id"),
+                    rs.getString("day"),
+                    rs.getString("start_time"),
+                    rs.getString("end_time")
+            );
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.config.ChangeLogProperties;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the change_log table that triggers fill on every write to schedule_assignments, the
+ * listed section columns and student_schedule (see V4__change_log.sql).
+ *
+ * A delta is the set of sections touched after a client's version; callers send the current
+ * state of those sections rather than the log rows, so replaying a change twice is harmless.
+ * The version is read before anything else, which means a change racing with the read may be
+ * sent again next time but never skipped.
+ *
+ * A background task deletes all but the newest retain-versions rows. It moves
+ * compacted_through before deleting and readers check it after reading, so a client whose
+ * version has been compacted away always gets a full reload instead of a silently short delta.
+ * Every school has its own log and versions; the task compacts each local school in turn.
+ */
+@Component
+public class ChangeLog implements InitializingBean, AutoCloseable {
+
+    private static final SqlStatement CURRENT_VERSION = SqlStatement.of("changeLog.currentVersion",
+            "SELECT MAX(COALESCE((SELECT MAX(version) FROM change_log), 0), compacted_through) " +
+                    "FROM change_log_state WHERE id = 1");
+    private static final SqlStatement COMPACTED_THROUGH = SqlStatement.of("changeLog.compactedThrough",
+            "SELECT compacted_through FROM change_log_state WHERE id = 1");
+    // once a semester's last assignment change is compacted away this follows the floor instead,
+    // which only moves forward, so a cache keyed on it may recompute needlessly but never goes stale
+    private static final SqlStatement SEMESTER_SCHEDULE_VERSION = SqlStatement.of("changeLog.semesterScheduleVersion",
+            "SELECT MAX(COALESCE((SELECT MAX(version) FROM change_log WHERE semester_id = ? AND entity = 'assignment'), 0), " +
+                    "compacted_through) FROM change_log_state WHERE id = 1");
+    private static final SqlStatement SEMESTER_VERSION = SqlStatement.of("changeLog.semesterVersion",
+            "SELECT MAX(COALESCE((SELECT MAX(version) FROM change_log WHERE semester_id = ?), 0), " +
+                    "compacted_through) FROM change_log_state WHERE id = 1");
+    private static final SqlStatement SECTIONS_CHANGED_FOR_SEMESTER = SqlStatement.of("changeLog.sectionsForSemester",
+            "SELECT DISTINCT section_id FROM change_log WHERE semester_id = ? AND version > ? AND version <= ?");
+    // the student's own enrolments and drops, plus anything touching a section they are in
+    private static final SqlStatement CHANGES_FOR_STUDENT = SqlStatement.of("changeLog.forStudent",
+            "SELECT DISTINCT entity, section_id FROM change_log " +
+                    "WHERE semester_id = ? AND version > ? AND version <= ? " +
+                    "AND (student_id = ? OR section_id IN (SELECT section_id FROM student_schedule WHERE student_id = ?))");
+    private static final SqlStatement MARK_COMPACTED = SqlStatement.of("changeLog.markCompacted",
+            "UPDATE change_log_state SET compacted_through = ? WHERE id = 1 AND compacted_through < ?");
+    private static final SqlStatement COMPACT = SqlStatement.of("changeLog.compact",
+            "DELETE FROM change_log WHERE version <= ?");
+
+    /**
+     * What changed after a client's version. With fullReload the client must drop what it has
+     * and take everything; otherwise sectionIds are the sections to re-fetch (or to remove when
+     * they no longer appear). timesChanged is set when any of them was moved, added or cleared.
+     */
+    public record Delta(long version, boolean fullReload, List<Integer> sectionIds, boolean timesChanged) {}
+
+    private final DataService dataService;
+    private final SchoolRegistry schools;
+    private final long retainVersions;
+    private final long compactIntervalSeconds;
+    private ScheduledExecutorService timer;
+
+    public ChangeLog(DataService dataService, SchoolRegistry schools, ChangeLogProperties properties) {
+        this.dataService = dataService;
+        this.schools = schools;
+        this.retainVersions = properties.retainVersions();
+        this.compactIntervalSeconds = properties.compactIntervalSeconds();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-log-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::scheduledCompaction, compactIntervalSeconds, compactIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public long currentVersion() {
+        return dataService.queryLong(CURRENT_VERSION, 0);
+    }
+
+    /** Version of the last change to a semester's timetable (its schedule_assignments rows). */
+    public long semesterScheduleVersion(int semesterId) {
+        return dataService.queryLong(SEMESTER_SCHEDULE_VERSION, 0, semesterId);
+    }
+
+    /** Version of the last change of any kind in a semester: assignments, sections or enrolments. */
+    public long semesterVersion(int semesterId) {
+        return dataService.queryLong(SEMESTER_VERSION, 0, semesterId);
+    }
+
+    /** Sections of a semester whose assignments or listed columns changed after {@code since}. */
+    public Delta semesterChanges(int semesterId, long since) {
+        long version = currentVersion();
+        if (since <= 0) return full(version);
+        List<Integer> sections = dataService.list(SECTIONS_CHANGED_FOR_SEMESTER,
+                (rs, i) -> rs.getInt("section_id"), semesterId, since, version);
+        if (since < compactedThrough()) return full(version);
+        return new Delta(version, false, sections, false);
+    }
+
+    /** A student's enrolments and drops in a semester, and changes to the sections they are in. */
+    public Delta studentChanges(int studentId, int semesterId, long since) {
+        long version = currentVersion();
+        if (since <= 0) return full(version);
+        List<Object[]> rows = dataService.list(CHANGES_FOR_STUDENT,
+                (rs, i) -> new Object[]{rs.getString("entity"), rs.getInt("section_id")},
+                semesterId, since, version, studentId, studentId);
+        if (since < compactedThrough()) return full(version);
+        boolean timesChanged = rows.stream().anyMatch(r -> !"section".equals(r[0]));
+        List<Integer> sections = rows.stream().map(r -> (Integer) r[1]).distinct().toList();
+        return new Delta(version, false, sections, timesChanged);
+    }
+
+    private long compactedThrough() {
+        return dataService.queryLong(COMPACTED_THROUGH, 0);
+    }
+
+    private static Delta full(long version) {
+        return new Delta(version, true, List.of(), true);
+    }
+
+    /** Drops everything but the newest retain-versions changes. Returns how many rows went. */
+    public int compact() {
+        long through = currentVersion() - retainVersions;
+        if (through <= compactedThrough()) return 0;
+        // floor first: a reader that saw the rows before they went still ends up reloading
+        dataService.execute(MARK_COMPACTED, through, through);
+        return dataService.execute(COMPACT, through);
+    }
+
+    private void scheduledCompaction() {
+        schools.forEachLocal(school -> {
+            try {
+                int removed = compact();
+                if (removed > 0) System.out.println("🧹 Compacted change log of " + school + ": removed " + removed + " entries");
+            } catch (RuntimeException e) {
+                System.out.println("⚠️ Change log compaction failed for " + school + ": " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) timer.shutdownNow();
+    }
+}
@@ -1,29 +1,341 @@
 package com.mhs.api.scheduler.service;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
+/**
+ * Routes statements to SQLite.
+ *
+ * In split mode reads run on the read-only pool and writes are handed to the group-commit
+ * writer. Inside a transaction both stay on the caller's (writer) connection so the
+ * transaction sees its own writes and does not deadlock on the one writer connection.
+ *
+ * Connections and writers belong to the school the calling thread works for ({@link SchoolContext}).
+ *
+ * Outside a transaction every read, and every write that runs on the caller's thread, passes
+ * through {@link DbAdmissionController} first. Writes queued for the group-commit writer do not:
+ * a permit held while waiting in the queue would cap each batch at the permit count and starve
+ * reads during a write burst, so the writer's bounded queue and enqueue timeout push back
+ * instead (also a 503). In memory mode each successful write is also staged for the
+ * {@link SqliteMemoryStore} journal.
+ *
+ * The typed methods take a {@link SqlStatement} and a {@link RowMapper}; statements are
+ * compiled once per connection and rows are mapped straight from the ResultSet.
+ * {@code query}/{@code update} remain for ad-hoc SQL. Every statement is also a
+ * {@link SchedulerEvents.DbStatement} flight recorder event.
+ */
 @Service
-@RequiredArgsConstructor
+@DependsOn("migrationRunner")
 public class DataService {
 
+    private static final SqlStatement LAST_INSERT_ROWID = SqlStatement.of("lastInsertRowid", "SELECT last_insert_rowid()");
+
     public final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+    private final SchoolWriters writers;
+    private final DbAdmissionController admission;
+    private final SqliteMemoryStore journal;
+    private final PreparedStatementCache statements = new PreparedStatementCache();
+
+    public DataService(JdbcTemplate jdbcTemplate,
+                       @Qualifier("readJdbcTemplate") Optional<JdbcTemplate> readJdbcTemplate,
+                       Optional<SchoolWriters> writers,
+                       DbAdmissionController admission,
+                       Optional<SqliteMemoryStore> memoryStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readJdbcTemplate = readJdbcTemplate.orElse(jdbcTemplate);
+        this.writers = writers.orElse(null);
+        this.admission = admission;
+        this.journal = memoryStore.orElse(null);
+    }
+
+    // ---------------------------------------------------------
+    // Typed API
+    // ---------------------------------------------------------
+
+    public <T> List<T> list(SqlStatement statement, RowMapper<T> mapper, Object... params) {
+        return run(reader(), statement, params, ps -> {
+            List<T> out = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                int row = 0;
+                while (rs.next()) out.add(mapper.mapRow(rs, row++));
+            }
+            return out;
+        }, List::size);
+    }
+
+    /** Streams rows to {@code handler} without collecting them, for single-pass aggregation. */
+    public void forEach(SqlStatement statement, RowCallbackHandler handler, Object... params) {
+        run(reader(), statement, params, ps -> {
+            int rows = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.processRow(rs);
+                    rows++;
+                }
+            }
+            return rows;
+        }, rows -> rows);
+    }
+
+    public <T> Optional<T> findOne(SqlStatement statement, RowMapper<T> mapper, Object... params) {
+        return run(reader(), statement, params, ps -> {
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.ofNullable(mapper.mapRow(rs, 0)) : Optional.empty();
+            }
+        }, found -> found.isPresent() ? 1 : 0);
+    }
+
+    /** First column of the first row as an int, or {@code fallback} when there is no row or it is NULL. */
+    public int queryInt(SqlStatement statement, int fallback, Object... params) {
+        return run(reader(), statement, params, ps -> {
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return fallback;
+                int value = rs.getInt(1);
+                return rs.wasNull() ? fallback : value;
+            }
+        }, value -> 1);
+    }
+
+    /** First column of the first row as a long, or {@code fallback} when there is no row or it is NULL. */
+    public long queryLong(SqlStatement statement, long fallback, Object... params) {
+        return run(reader(), statement, params, ps -> {
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return fallback;
+                long value = rs.getLong(1);
+                return rs.wasNull() ? fallback : value;
+            }
+        }, value -> 1);
+    }
+
+    /** First column of the first row as a double, or {@code fallback} when there is no row or it is NULL. */
+    public double queryDouble(SqlStatement statement, double fallback, Object... params) {
+        return run(reader(), statement, params, ps -> {
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return fallback;
+                double value = rs.getDouble(1);
+                return rs.wasNull() ? fallback : value;
+            }
+        }, value -> 1);
+    }
+
+    public int execute(SqlStatement statement, Object... params) {
+        return write(con -> executeUpdate(con, statement, params));
+    }
+
+    /** Queues a write for the next group commit without waiting for it. */
+    public CompletableFuture<Integer> executeAsync(SqlStatement statement, Object... params) {
+        if (writers == null || inTransaction()) {
+            return CompletableFuture.completedFuture(execute(statement, params));
+        }
+        return writers.current().submit(con -> executeUpdate(con, statement, params));
+    }
+
+    /**
+     * Runs several statements as one write: they commit together or not at all, and a throw
+     * from {@code unit} undoes the ones it already ran. Queued for the group-commit writer like
+     * any other write; inside a transaction it is part of that transaction.
+     */
+    public <T> T writeUnit(WriteUnit<T> unit) {
+        return write(con -> atomically(con, c -> unit.apply((statement, params) -> executeUpdate(con, statement, params))));
+    }
+
+    /** Runs an INSERT and returns the generated row id from the same connection. */
+    public long insert(SqlStatement statement, Object... params) {
+        return write(con -> {
+            executeUpdate(con, statement, params);
+            try (ResultSet rs = statements.prepare(con, LAST_INSERT_ROWID).executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1L;
+            }
+        });
+    }
+
+    // ---------------------------------------------------------
+    // Untyped API
+    // ---------------------------------------------------------
 
     public List<Map<String, Object>> query(String sql, Object... params) {
-        return jdbcTemplate.queryForList(sql, params);
+        return admitted(() -> {
+            SchedulerEvents.DbStatement event = new SchedulerEvents.DbStatement();
+            event.begin();
+            List<Map<String, Object>> rows = reader().queryForList(sql, params);
+            commit(event, sql, false, rows.size());
+            return rows;
+        });
     }
 
     public int update(String sql, Object... params) {
-        return jdbcTemplate.update(sql, params);
+        return write(con -> executeUncached(con, sql, params));
+    }
+
+    public long insertAndReturnKey(String sql, Object... params) {
+        return write(con -> {
+            executeUncached(con, sql, params);
+            try (ResultSet rs = statements.prepare(con, LAST_INSERT_ROWID).executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1L;
+            }
+        });
+    }
+
+    // ad-hoc SQL is prepared per call and closed; only named statements are kept in the cache
+    private int executeUncached(Connection con, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            SchedulerEvents.DbStatement event = new SchedulerEvents.DbStatement();
+            event.begin();
+            bind(ps, params);
+            int rows = ps.executeUpdate();
+            commit(event, sql, true, rows);
+            if (journal != null) journal.record(sql, params);
+            return rows;
+        }
+    }
+
+    // ---------------------------------------------------------
+
+    private JdbcTemplate reader() {
+        return inTransaction() ? jdbcTemplate : readJdbcTemplate;
+    }
+
+    private <T> T run(JdbcTemplate template, SqlStatement statement, Object[] params, StatementWork<T> work,
+                      ToIntFunction<? super T> rows) {
+        return admitted(() -> template.execute((ConnectionCallback<T>) con -> {
+            PreparedStatement ps = statements.prepare(con, statement);
+            SchedulerEvents.DbStatement event = new SchedulerEvents.DbStatement();
+            event.begin();
+            try {
+                bind(ps, params);
+                T result = work.apply(ps);
+                commit(event, statement.name(), false, rows.applyAsInt(result));
+                return result;
+            } finally {
+                ps.clearParameters();
+            }
+        }));
+    }
+
+    // duration runs from begin() to here; fields are only filled in when a recording wants the event
+    private static void commit(SchedulerEvents.DbStatement event, String name, boolean write, int rows) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.name = name;
+        event.write = write;
+        event.rows = rows;
+        event.inTransaction = inTransaction();
+        event.commit();
+    }
+
+    private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+    }
+
+    private int executeUpdate(Connection con, SqlStatement statement, Object[] params) throws SQLException {
+        PreparedStatement ps = statements.prepare(con, statement);
+        SchedulerEvents.DbStatement event = new SchedulerEvents.DbStatement();
+        event.begin();
+        try {
+            bind(ps, params);
+            int rows = ps.executeUpdate();
+            commit(event, statement.name(), true, rows);
+            if (journal != null) journal.record(statement.sql(), params);
+            return rows;
+        } finally {
+            ps.clearParameters();
+        }
+    }
+
+    private <T> T write(GroupCommitWriter.WriteWork<T> work) {
+        if (writers == null || inTransaction()) {
+            return admitted(() -> jdbcTemplate.execute((ConnectionCallback<T>) con -> {
+                T result = work.apply(con);
+                // an autocommitted write is journaled before the connection goes back to the pool
+                if (journal != null && !inTransaction()) journal.committed();
+                return result;
+            }));
+        }
+        return awaitWriter(writers.current().submit(work));
+    }
+
+    // the group-commit writer and transactions already run with autocommit off; a pooled
+    // autocommitting connection (single mode) gets a transaction of its own
+    private <T> T atomically(Connection con, GroupCommitWriter.WriteWork<T> work) throws SQLException {
+        if (!con.getAutoCommit()) return work.apply(con);
+        con.setAutoCommit(false);
+        try {
+            T result = work.apply(con);
+            con.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            con.rollback();
+            if (journal != null) journal.rolledBack();
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    private <T> T awaitWriter(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the SQLite writer", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) {
+                DataAccessException translated = jdbcTemplate.getExceptionTranslator().translate("SQLite write", null, sql);
+                throw translated != null ? translated : new UncategorizedSQLException("SQLite write", null, sql);
+            }
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new DbOverloadedException(e.getCause().getMessage());
+            }
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // a transaction already owns the writer connection; shedding it halfway would only waste the work
+    private <T> T admitted(Supplier<T> work) {
+        return inTransaction() ? work.get() : admission.call(work);
+    }
+
+    private static boolean inTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /** The statements of one {@link #writeUnit}, all run on its connection. */
+    @FunctionalInterface
+    public interface Writes {
+        int execute(SqlStatement statement, Object... params) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface WriteUnit<T> {
+        T apply(Writes writes) throws SQLException;
     }
 
-    public void insertAndReturnKey(String sql, Object... params) {
-        // using simple update; for SQLite we can run a separate SELECT last_insert_rowid()
-        jdbcTemplate.update(sql, params);
-        jdbcTemplate.queryForObject("SELECT last_insert_rowid()", Number.class);
+    @FunctionalInterface
+    private interface StatementWork<T> {
+        T apply(PreparedStatement ps) throws SQLException;
     }
 }
@@ -0,0 +1,81 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.config.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounds how many callers are inside the database at once.
+ *
+ * With virtual threads there is no thread pool to cap concurrency, and the SQLite driver
+ * pins carrier threads while it works, so every DataService call that touches a connection
+ * itself first takes a permit from a fair semaphore; writes handed to the group-commit writer are
+ * bounded by its queue instead. A caller that finds the wait queue full, or cannot get a permit within
+ * maxWaitMs, is rejected at once with {@link DbOverloadedException} (HTTP 503) rather than
+ * joining an ever-growing queue.
+ */
+@Component
+public class DbAdmissionController {
+
+    private final boolean enabled;
+    private final Semaphore permits;
+    private final int maxQueue;
+    private final long maxWaitMs;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public DbAdmissionController(AdmissionProperties properties, MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        this.permits = new Semaphore(properties.maxConcurrent(), true);
+        this.maxQueue = properties.maxQueue();
+        this.maxWaitMs = properties.maxWaitMs();
+
+        this.waitTimer = Timer.builder("db.admission.wait").register(registry);
+        this.rejected = registry.counter("db.admission.rejected");
+        registry.gauge("db.admission.queue.depth", waiting);
+        registry.gauge("db.admission.in.flight", inFlight);
+    }
+
+    public <T> T call(Supplier<T> work) {
+        if (!enabled) return work.get();
+
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            throw new DbOverloadedException("Database queue is full");
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new DbOverloadedException("Timed out waiting for the database");
+        }
+
+        inFlight.incrementAndGet();
+        try {
+            return work.get();
+        } finally {
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+}
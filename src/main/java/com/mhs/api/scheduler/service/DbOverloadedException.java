@@ -0,0 +1,9 @@
+package com.mhs.api.scheduler.service;
+
+/** Thrown when a database call is shed instead of queued; surfaced to clients as 503. */
+public class DbOverloadedException extends RuntimeException {
+
+    public DbOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,992 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.model.Classroom;
+import com.mhs.api.scheduler.model.SectionInput;
+import com.mhs.api.scheduler.model.Teacher;
+import com.mhs.api.scheduler.model.TimeSlot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Complete search for a clash-free timetable, for when the greedy pass in
+ * {@link SchedulerService#generate(int)} leaves sections unscheduled and nobody can tell whether
+ * the semester is impossible or the greedy order was just unlucky.
+ *
+ * Every session of every section is a variable whose domain is the (placement, room, teacher)
+ * triples it could take. A placement is one or two consecutive slots of one day, and hours are
+ * split into sessions the same way the greedy pass splits them. The constraints are the same
+ * too: a room or teacher holds one session per slot, a teacher teaches at most four hours a day,
+ * and sessions of one section never overlap. Sessions of equal length within a section are kept
+ * in time order, which only removes mirror-image solutions.
+ *
+ * The search is backtracking with smallest-domain-first variable choice, forward checking after
+ * every assignment, arc consistency revised against domains that have shrunk to a few values,
+ * and conflict-directed backjumping: each variable remembers which assignments pruned it, so a
+ * dead end jumps straight back to the deepest assignment that caused it.
+ *
+ * Before searching, capacity is counted per candidate room set and teacher group ("3 gym rooms
+ * × 35 slots = 105 room-hours < 120 hours of demand"); most impossible semesters fail there at
+ * once. When the search itself proves infeasibility, the sections that took part in the proof
+ * are dropped one at a time while the rest stays infeasible, leaving a minimal set whose rooms
+ * and teachers are reported.
+ *
+ * Instances are single-use and not thread-safe.
+ */
+public final class ExactScheduler {
+
+    public enum Status { SCHEDULED, INFEASIBLE, TIMEOUT }
+
+    /** One placed session: consecutive timeslots in one room with one teacher. */
+    public record Session(int sectionId, List<Integer> timeslotIds, int roomId, int teacherId) {}
+
+    /** A slot already held by a section outside the problem; its room and teacher are not available then. */
+    public record Booking(int timeslotId, int roomId, int teacherId) {}
+
+    /**
+     * Why the sections cannot be placed. {@code minimal} is true when none of {@code sections}
+     * can be left out without the rest becoming placeable.
+     */
+    public record Explanation(String summary, List<SectionInput> sections, List<Integer> roomIds,
+                              List<Integer> teacherIds, boolean minimal) {}
+
+    public record Result(Status status, List<Session> sessions, Explanation explanation,
+                         long nodes, long backjumps, long elapsedMillis) {}
+
+    static final int MAX_TEACHER_HOURS_PER_DAY = 4;
+
+    // arcs are only revised against domains this small; a value rarely clashes with every value of a bigger one
+    private static final int AC_DOMAIN_LIMIT = 16;
+    private static final int SOLVED = Integer.MAX_VALUE;
+    private static final OutOfTime OUT_OF_TIME = new OutOfTime();
+
+    private final ReferenceData ref;
+    private final List<SectionInput> sections;
+    private final List<Booking> booked;
+    private final Set<Integer> unavailableRooms;
+    private final Set<Integer> unavailableTeachers;
+
+    // timeslots in timetable order, by index
+    private final int[] slotIds;
+    private final int[] slotDay;
+    private final int[] slotsPerDay;
+    // placements[len] in time order; covering[len][slot] and onDay[len][day] index into it
+    private final Placement[][] placements = new Placement[3][];
+    private final int[][][] covering = new int[3][][];
+    private final int[][][] onDay = new int[3][][];
+
+    private final List<Classroom> rooms;
+    private final List<Teacher> teachers;
+    private final Map<Integer, Integer> roomIndex = new HashMap<>();
+    private final Map<Integer, Integer> teacherIndex = new HashMap<>();
+    private final int[][] teacherHours;   // [teacher][day], bookings plus assignments
+
+    private final Var[] vars;
+    private final Var[][] sectionVars;
+    private final Var[] assignedAt;       // depth -> variable, depths start at 1
+    private final BitSet[] conflictsAt;
+    private final int[] trailMark;
+    private final int[] culpritMark;
+    private final IntStack trail = new IntStack();          // (variable, value) removed
+    private final IntStack culpritTrail = new IntStack();   // (variable, depth) blamed
+    private final ArrayDeque<Var> arcQueue = new ArrayDeque<>();
+    private final BitSet implicated = new BitSet();         // sections seen in a dead end
+    private final Map<Integer, Collection<Integer>> avoided = new HashMap<>(); // section id -> timeslot ids
+
+    private int depth;
+    private long deadline;
+    private long nodes;
+    private long backjumps;
+
+    public ExactScheduler(ReferenceData ref, List<SectionInput> sections, List<Booking> booked) {
+        this(ref, sections, booked, Set.of(), Set.of());
+    }
+
+    /** As above, with rooms and teachers that may not be used at all (closed, on leave). */
+    public ExactScheduler(ReferenceData ref, List<SectionInput> sections, List<Booking> booked,
+                          Set<Integer> unavailableRooms, Set<Integer> unavailableTeachers) {
+        this.ref = ref;
+        this.sections = List.copyOf(sections);
+        this.booked = List.copyOf(booked);
+        this.unavailableRooms = Set.copyOf(unavailableRooms);
+        this.unavailableTeachers = Set.copyOf(unavailableTeachers);
+
+        List<TimeSlot> timeslots = ref.timeslots();
+        Map<Integer, Integer> slotIndex = new HashMap<>();
+        slotIds = new int[timeslots.size()];
+        slotDay = new int[timeslots.size()];
+        for (int i = 0; i < timeslots.size(); i++) {
+            slotIds[i] = timeslots.get(i).id();
+            slotIndex.put(slotIds[i], i);
+        }
+        List<List<TimeSlot>> days = new ArrayList<>(ref.timeslotsByDay().values());
+        slotsPerDay = new int[days.size()];
+        for (int d = 0; d < days.size(); d++) {
+            slotsPerDay[d] = days.get(d).size();
+            for (TimeSlot ts : days.get(d)) slotDay[slotIndex.get(ts.id())] = d;
+        }
+        for (int len = 1; len <= 2; len++) buildPlacements(len, days, slotIndex);
+
+        rooms = ref.classrooms();
+        teachers = ref.teachers();
+        for (int i = 0; i < rooms.size(); i++) roomIndex.put(rooms.get(i).id(), i);
+        for (int i = 0; i < teachers.size(); i++) teacherIndex.put(teachers.get(i).id(), i);
+        teacherHours = new int[teachers.size()][days.size()];
+
+        List<Var> all = new ArrayList<>();
+        sectionVars = new Var[this.sections.size()][];
+        for (int s = 0; s < this.sections.size(); s++) {
+            SectionInput sec = this.sections.get(s);
+            int[] roomCandidates = roomCandidates(sec);
+            int[] teacherCandidates = teacherCandidates(sec);
+            List<Integer> lens = sessionLengths(sec.courseHours());
+            sectionVars[s] = new Var[lens.size()];
+            int[] orderByLen = new int[3];
+            for (int k = 0; k < lens.size(); k++) {
+                int len = lens.get(k);
+                Var v = new Var(all.size(), s, len, orderByLen[len]++, roomCandidates, teacherCandidates);
+                sectionVars[s][k] = v;
+                all.add(v);
+            }
+        }
+        vars = all.toArray(new Var[0]);
+        for (Var v : vars) v.neighbors = neighbors(v);
+
+        assignedAt = new Var[vars.length + 2];
+        conflictsAt = new BitSet[vars.length + 2];
+        trailMark = new int[vars.length + 2];
+        culpritMark = new int[vars.length + 2];
+    }
+
+    /** Hours split into sessions, two-hour blocks first; matches the greedy pass. */
+    static List<Integer> sessionLengths(int hours) {
+        List<Integer> lens = new ArrayList<>();
+        for (int rem = hours; rem > 0; rem -= Math.min(rem, 2)) lens.add(Math.min(rem, 2));
+        return lens;
+    }
+
+    // ---------------------------------------------------------
+    // Entry points
+    // ---------------------------------------------------------
+
+    /**
+     * Keeps a section out of the given timeslots, e.g. those its enrolled students spend in
+     * other sections. Call before {@link #solve}.
+     */
+    public ExactScheduler avoid(int sectionId, Collection<Integer> timeslotIds) {
+        avoided.put(sectionId, List.copyOf(timeslotIds));
+        return this;
+    }
+
+    /**
+     * Searches for up to {@code timeLimitMillis}. An infeasible result carries an explanation;
+     * shrinking it to a minimal set shares the same time budget.
+     */
+    public Result solve(long timeLimitMillis) {
+        long start = System.nanoTime();
+        deadline = start + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+
+        Status status;
+        Explanation explanation = capacityConflict();
+        if (explanation != null) {
+            status = Status.INFEASIBLE;
+        } else {
+            Var wiped = prepareRoot();
+            if (wiped != null) {
+                status = Status.INFEASIBLE;
+                explanation = unplaceable(wiped);
+                if (explanation == null) {
+                    implicated.set(wiped.section);
+                    for (Var w : wiped.neighbors) if (w.count <= AC_DOMAIN_LIMIT) implicated.set(w.section);
+                }
+            } else {
+                status = search();
+            }
+        }
+        if (status == Status.INFEASIBLE && explanation == null) explanation = minimize(implicated);
+
+        List<Session> sessions = status == Status.SCHEDULED ? sessions() : List.of();
+        return new Result(status, sessions, explanation, nodes, backjumps,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /** Feasibility only, for shrinking an explanation. */
+    private Status decide(long deadline) {
+        this.deadline = deadline;
+        if (capacityConflict() != null || prepareRoot() != null) return Status.INFEASIBLE;
+        return search();
+    }
+
+    private Status search() {
+        try {
+            return search(1) == SOLVED ? Status.SCHEDULED : Status.INFEASIBLE;
+        } catch (OutOfTime e) {
+            return Status.TIMEOUT;
+        }
+    }
+
+    private List<Session> sessions() {
+        List<Session> out = new ArrayList<>();
+        for (Var v : vars) {
+            Placement p = v.placement(v.assigned);
+            List<Integer> ids = new ArrayList<>();
+            for (int slot : p.slots()) ids.add(slotIds[slot]);
+            out.add(new Session(sections.get(v.section).id(), List.copyOf(ids),
+                    rooms.get(v.room(v.assigned)).id(), teachers.get(v.teacher(v.assigned)).id()));
+        }
+        return out;
+    }
+
+    // ---------------------------------------------------------
+    // Model
+    // ---------------------------------------------------------
+
+    private void buildPlacements(int len, List<List<TimeSlot>> days, Map<Integer, Integer> slotIndex) {
+        List<Placement> list = new ArrayList<>();
+        List<List<Integer>> cover = new ArrayList<>();
+        List<List<Integer>> byDay = new ArrayList<>();
+        for (int i = 0; i < slotIds.length; i++) cover.add(new ArrayList<>());
+        for (int d = 0; d < days.size(); d++) {
+            byDay.add(new ArrayList<>());
+            List<TimeSlot> daySlots = days.get(d);
+            for (int i = 0; i + len <= daySlots.size(); i++) {
+                int[] slots = new int[len];
+                for (int k = 0; k < len; k++) slots[k] = slotIndex.get(daySlots.get(i + k).id());
+                Placement p = new Placement(list.size(), d, slots);
+                list.add(p);
+                byDay.get(d).add(p.index());
+                for (int slot : slots) cover.get(slot).add(p.index());
+            }
+        }
+        placements[len] = list.toArray(new Placement[0]);
+        covering[len] = toArrays(cover);
+        onDay[len] = toArrays(byDay);
+    }
+
+    // same candidates as the greedy pass: the preferred room type (any room when there is none) with enough seats
+    private int[] roomCandidates(SectionInput sec) {
+        List<Classroom> candidates = ref.classroomsOfType(sec.preferredRoomTypeId());
+        if (candidates.isEmpty()) candidates = rooms;
+        return candidates.stream()
+                .filter(r -> r.capacity() >= sec.capacity() && !unavailableRooms.contains(r.id()))
+                .mapToInt(r -> roomIndex.get(r.id()))
+                .toArray();
+    }
+
+    private int[] teacherCandidates(SectionInput sec) {
+        List<Teacher> candidates = ref.teachersWithSpecialization(sec.courseSpecializationId());
+        if (candidates.isEmpty()) candidates = teachers;
+        return candidates.stream()
+                .filter(t -> !unavailableTeachers.contains(t.id()))
+                .mapToInt(t -> teacherIndex.get(t.id())).toArray();
+    }
+
+    private Var[] neighbors(Var v) {
+        List<Var> out = new ArrayList<>();
+        for (Var u : vars) {
+            if (u == v) continue;
+            if (u.section == v.section || u.roomSet.intersects(v.roomSet) || u.teacherSet.intersects(v.teacherSet)) {
+                out.add(u);
+            }
+        }
+        return out.toArray(new Var[0]);
+    }
+
+    /** Applies bookings and the daily-hours limit they imply, then arc consistency. Returns a wiped-out variable, if any. */
+    private Var prepareRoot() {
+        depth = 0;
+        for (Booking b : booked) {
+            Integer r = roomIndex.get(b.roomId());
+            Integer t = teacherIndex.get(b.teacherId());
+            int slot = indexOfSlot(b.timeslotId());
+            if (slot < 0) continue;
+            if (t != null) teacherHours[t][slotDay[slot]]++;
+            for (Var u : vars) {
+                int rp = r == null ? -1 : u.roomPos[r];
+                int tp = t == null ? -1 : u.teacherPos[t];
+                removeCovering(u, slot, rp, tp);
+            }
+        }
+        for (int s = 0; s < sections.size(); s++) {
+            for (int timeslotId : avoided.getOrDefault(sections.get(s).id(), List.of())) {
+                int slot = indexOfSlot(timeslotId);
+                if (slot < 0) continue;
+                for (Var u : sectionVars[s]) removeCovering(u, slot);
+            }
+        }
+        for (Var u : vars) {
+            for (int tp = 0; tp < u.teachers.length; tp++) {
+                for (int d = 0; d < slotsPerDay.length; d++) {
+                    if (teacherHours[u.teachers[tp]][d] + u.len > MAX_TEACHER_HOURS_PER_DAY) removeDay(u, d, tp);
+                }
+            }
+        }
+        for (Var u : vars) {
+            if (u.count == 0) return u;
+            if (u.count <= AC_DOMAIN_LIMIT) arcQueue.add(u);
+        }
+        return arcConsistency();
+    }
+
+    private int indexOfSlot(int timeslotId) {
+        for (int i = 0; i < slotIds.length; i++) if (slotIds[i] == timeslotId) return i;
+        return -1;
+    }
+
+    // ---------------------------------------------------------
+    // Search
+    // ---------------------------------------------------------
+
+    /**
+     * Assigns one variable at {@code d} and recurses. Returns SOLVED, or the depth to jump back
+     * to; 0 means the dead end does not depend on any assignment, i.e. there is no solution.
+     */
+    private int search(int d) {
+        Var v = chooseVariable();
+        if (v == null) return SOLVED;
+
+        BitSet conflicts = new BitSet();
+        conflictsAt[d] = conflicts;
+        for (int value : orderValues(v)) {
+            if ((++nodes & 255) == 0 && System.nanoTime() > deadline) throw OUT_OF_TIME;
+
+            depth = d;
+            trailMark[d] = trail.size();
+            culpritMark[d] = culpritTrail.size();
+            assign(v, value, d);
+            Var wiped = propagate(v, d);
+            if (wiped != null) {
+                conflicts.or(wiped.culprits);
+                implicated.set(wiped.section);
+                for (int e = wiped.culprits.nextSetBit(1); e >= 0; e = wiped.culprits.nextSetBit(e + 1)) {
+                    implicated.set(assignedAt[e].section);
+                }
+            } else {
+                int back = search(d + 1);
+                if (back == SOLVED) return SOLVED;
+                if (back < d) {
+                    undo(d);
+                    unassign(v, d);
+                    return back;
+                }
+                // back == d: the deeper conflict set was merged into ours, try the next value
+            }
+            undo(d);
+            unassign(v, d);
+        }
+
+        // no value works: blame the earlier assignments that ruled them out
+        conflicts.or(v.culprits);
+        conflicts.clear(d, Math.max(d, conflicts.length()));
+        if (conflicts.isEmpty()) return 0;
+        int back = conflicts.length() - 1;
+        conflicts.clear(back);
+        conflictsAt[back].or(conflicts);
+        if (back < d - 1) {
+            backjumps++;
+            SchedulerEvents.Backjump event = new SchedulerEvents.Backjump();
+            if (event.shouldCommit()) {
+                event.fromDepth = d;
+                event.toDepth = back;
+                event.nodes = nodes;
+                event.commit();
+            }
+        }
+        return back;
+    }
+
+    // smallest domain first; longer sessions break ties
+    private Var chooseVariable() {
+        Var best = null;
+        for (Var v : vars) {
+            if (v.assigned >= 0) continue;
+            if (best == null || v.count < best.count || (v.count == best.count && v.len > best.len)) best = v;
+        }
+        return best;
+    }
+
+    /**
+     * Live values, best first: away from days the section already meets, with the teacher and
+     * room its other sessions use, and days rotated per section so sections spread over the week.
+     */
+    private int[] orderValues(Var v) {
+        boolean[] siblingDay = new boolean[slotsPerDay.length];
+        int siblingRoom = -1;
+        int siblingTeacher = -1;
+        for (Var s : sectionVars[v.section]) {
+            if (s.assigned < 0) continue;
+            siblingDay[s.placement(s.assigned).day()] = true;
+            siblingRoom = s.room(s.assigned);
+            siblingTeacher = s.teacher(s.assigned);
+        }
+        int days = slotsPerDay.length;
+        int shift = v.section % days;
+        long[] keyed = new long[v.count];
+        int n = 0;
+        for (int value = v.live.nextSetBit(0); value >= 0; value = v.live.nextSetBit(value + 1)) {
+            int day = v.placement(value).day();
+            int score = (siblingDay[day] ? 4 : 0)
+                    + (v.teacher(value) == siblingTeacher ? 0 : 2)
+                    + (v.room(value) == siblingRoom ? 0 : 1);
+            int dayRank = (day - shift + days) % days;
+            keyed[n++] = ((long) score << 40) | ((long) dayRank << 32) | value;
+        }
+        Arrays.sort(keyed, 0, n);
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) out[i] = (int) keyed[i];
+        return out;
+    }
+
+    private void assign(Var v, int value, int d) {
+        v.assigned = value;
+        assignedAt[d] = v;
+        teacherHours[v.teacher(value)][v.placement(value).day()] += v.len;
+    }
+
+    private void unassign(Var v, int d) {
+        teacherHours[v.teacher(v.assigned)][v.placement(v.assigned).day()] -= v.len;
+        v.assigned = -1;
+        assignedAt[d] = null;
+    }
+
+    private void undo(int d) {
+        while (trail.size() > trailMark[d]) {
+            int value = trail.pop();
+            Var u = vars[trail.pop()];
+            u.live.set(value);
+            u.count++;
+        }
+        while (culpritTrail.size() > culpritMark[d]) {
+            int e = culpritTrail.pop();
+            vars[culpritTrail.pop()].culprits.clear(e);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Propagation
+    // ---------------------------------------------------------
+
+    /** Forward checking from the assignment at {@code d}, then arc consistency. Returns a wiped-out variable, if any. */
+    private Var propagate(Var v, int d) {
+        int value = v.assigned;
+        Placement pv = v.placement(value);
+        int room = v.room(value);
+        int teacher = v.teacher(value);
+        int hours = teacherHours[teacher][pv.day()];
+        BitSet hourCulprits = null;
+
+        arcQueue.clear();
+        for (Var u : v.neighbors) {
+            if (u.assigned >= 0) continue;
+            int before = u.count;
+            if (u.section == v.section) {
+                for (int b = u.live.nextSetBit(0); b >= 0; b = u.live.nextSetBit(b + 1)) {
+                    if (conflict(u, b, v, value)) remove(u, b);
+                }
+            } else {
+                for (int slot : pv.slots()) removeCovering(u, slot, u.roomPos[room], u.teacherPos[teacher]);
+            }
+            if (u.count < before) blame(u, d);
+
+            int tp = u.teacherPos[teacher];
+            if (tp >= 0 && hours + u.len > MAX_TEACHER_HOURS_PER_DAY) {
+                int beforeHours = u.count;
+                removeDay(u, pv.day(), tp);
+                if (u.count < beforeHours) {
+                    if (hourCulprits == null) hourCulprits = teacherDayCulprits(teacher, pv.day(), d);
+                    blame(u, hourCulprits);
+                }
+            }
+            if (u.count == 0) return u;
+            if (u.count < before && u.count <= AC_DOMAIN_LIMIT) arcQueue.add(u);
+        }
+        return arcConsistency();
+    }
+
+    /**
+     * AC-3 over the queued variables: drops values of a neighbour that clash with every value
+     * left in a small domain. The neighbour inherits that domain's culprits.
+     */
+    private Var arcConsistency() {
+        while (!arcQueue.isEmpty()) {
+            Var w = arcQueue.poll();
+            if (w.assigned >= 0 || w.count > AC_DOMAIN_LIMIT) continue;
+            for (Var u : w.neighbors) {
+                if (u.assigned >= 0) continue;
+                int before = u.count;
+                revise(u, w);
+                if (u.count < before) {
+                    blame(u, w.culprits);
+                    if (u.count == 0) return u;
+                    if (u.count <= AC_DOMAIN_LIMIT) arcQueue.add(u);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void revise(Var u, Var w) {
+        if (u.section == w.section) {
+            for (int a = u.live.nextSetBit(0); a >= 0; a = u.live.nextSetBit(a + 1)) {
+                if (unsupported(u, a, w)) remove(u, a);
+            }
+            return;
+        }
+        // a value without support clashes with every value of w, so in particular with the first
+        int b = w.live.nextSetBit(0);
+        int rp = u.roomPos[w.room(b)];
+        int tp = u.teacherPos[w.teacher(b)];
+        for (int slot : w.placement(b).slots()) {
+            for (int p : covering[u.len][slot]) {
+                if (rp >= 0) {
+                    for (int t = 0; t < u.teachers.length; t++) reviseValue(u, u.encode(p, rp, t), w);
+                }
+                if (tp >= 0) {
+                    for (int r = 0; r < u.rooms.length; r++) reviseValue(u, u.encode(p, r, tp), w);
+                }
+            }
+        }
+    }
+
+    private void reviseValue(Var u, int a, Var w) {
+        if (u.live.get(a) && unsupported(u, a, w)) remove(u, a);
+    }
+
+    private boolean unsupported(Var u, int a, Var w) {
+        for (int b = w.live.nextSetBit(0); b >= 0; b = w.live.nextSetBit(b + 1)) {
+            if (!conflict(u, a, w, b)) return false;
+        }
+        return true;
+    }
+
+    private boolean conflict(Var u, int a, Var w, int b) {
+        Placement pa = u.placement(a);
+        Placement pb = w.placement(b);
+        boolean overlap = overlaps(pa, pb);
+        if (u.section == w.section) {
+            return overlap || (u.len == w.len && (u.order < w.order) != (pa.index() < pb.index()));
+        }
+        return overlap && (u.room(a) == w.room(b) || u.teacher(a) == w.teacher(b));
+    }
+
+    private static boolean overlaps(Placement a, Placement b) {
+        if (a.day() != b.day()) return false;
+        for (int x : a.slots()) for (int y : b.slots()) if (x == y) return true;
+        return false;
+    }
+
+    // every value of u that uses the slot, whatever its room and teacher
+    private void removeCovering(Var u, int slot) {
+        for (int p : covering[u.len][slot]) {
+            for (int r = 0; r < u.rooms.length; r++) {
+                for (int t = 0; t < u.teachers.length; t++) remove(u, u.encode(p, r, t));
+            }
+        }
+    }
+
+    // every value of u placed over the slot that uses room position rp or teacher position tp
+    private void removeCovering(Var u, int slot, int rp, int tp) {
+        if (rp < 0 && tp < 0) return;
+        for (int p : covering[u.len][slot]) {
+            if (rp >= 0) {
+                for (int t = 0; t < u.teachers.length; t++) remove(u, u.encode(p, rp, t));
+            }
+            if (tp >= 0) {
+                for (int r = 0; r < u.rooms.length; r++) remove(u, u.encode(p, r, tp));
+            }
+        }
+    }
+
+    private void removeDay(Var u, int day, int tp) {
+        for (int p : onDay[u.len][day]) {
+            for (int r = 0; r < u.rooms.length; r++) remove(u, u.encode(p, r, tp));
+        }
+    }
+
+    private void remove(Var u, int value) {
+        if (!u.live.get(value)) return;
+        u.live.clear(value);
+        u.count--;
+        if (depth > 0) trail.push(u.index, value);
+    }
+
+    private void blame(Var u, int culprit) {
+        if (culprit > 0 && !u.culprits.get(culprit)) {
+            u.culprits.set(culprit);
+            culpritTrail.push(u.index, culprit);
+        }
+    }
+
+    private void blame(Var u, BitSet culprits) {
+        for (int e = culprits.nextSetBit(1); e >= 0; e = culprits.nextSetBit(e + 1)) blame(u, e);
+    }
+
+    // the daily limit is shared by every assignment of that teacher on that day
+    private BitSet teacherDayCulprits(int teacher, int day, int d) {
+        BitSet culprits = new BitSet();
+        for (int e = 1; e <= d; e++) {
+            Var a = assignedAt[e];
+            if (a.teacher(a.assigned) == teacher && a.placement(a.assigned).day() == day) culprits.set(e);
+        }
+        return culprits;
+    }
+
+    // ---------------------------------------------------------
+    // Explanations
+    // ---------------------------------------------------------
+
+    /**
+     * Counts supply against demand for every candidate room set and teacher group, plus all of
+     * them together: sections that can only use resources in a set need at most as many hours
+     * as the set has free. Sections with no candidate room or teacher at all come first.
+     */
+    private Explanation capacityConflict() {
+        for (Var v : vars) {
+            if (v.rooms.length == 0 || v.teachers.length == 0) return unplaceable(v);
+        }
+        Map<BitSet, Integer> roomSets = new LinkedHashMap<>();
+        Map<BitSet, Integer> teacherSets = new LinkedHashMap<>();
+        BitSet allRooms = new BitSet();
+        BitSet allTeachers = new BitSet();
+        for (Var v : vars) {
+            roomSets.putIfAbsent(v.roomSet, 0);
+            teacherSets.putIfAbsent(v.teacherSet, 0);
+            allRooms.or(v.roomSet);
+            allTeachers.or(v.teacherSet);
+        }
+        roomSets.putIfAbsent(allRooms, 0);
+        teacherSets.putIfAbsent(allTeachers, 0);
+
+        int[] bookedRoomSlots = new int[rooms.size()];
+        boolean[][] roomSlotBooked = new boolean[rooms.size()][slotIds.length];
+        int[][] bookedTeacherSlots = new int[teachers.size()][slotsPerDay.length];
+        for (Booking b : booked) {
+            int slot = indexOfSlot(b.timeslotId());
+            if (slot < 0) continue;
+            Integer r = roomIndex.get(b.roomId());
+            Integer t = teacherIndex.get(b.teacherId());
+            if (r != null && !roomSlotBooked[r][slot]) {
+                roomSlotBooked[r][slot] = true;
+                bookedRoomSlots[r]++;
+            }
+            if (t != null) bookedTeacherSlots[t][slotDay[slot]]++;
+        }
+
+        for (BitSet set : roomSets.keySet()) {
+            int supply = 0;
+            boolean anyBooked = false;
+            for (int r = set.nextSetBit(0); r >= 0; r = set.nextSetBit(r + 1)) {
+                supply += slotIds.length - bookedRoomSlots[r];
+                anyBooked |= bookedRoomSlots[r] > 0;
+            }
+            List<Var> within = within(set, v -> v.roomSet);
+            int demand = within.stream().mapToInt(v -> v.len).sum();
+            if (demand > supply && !set.isEmpty()) {
+                String supplyText = anyBooked
+                        ? describeRooms(set) + (set.cardinality() == 1 ? " has " : " have ") + supply + " free room-hours"
+                        : describeRooms(set) + " × " + slotIds.length + " slots = " + supply + " room-hours";
+                return capacityExplanation(supplyText + " < " + demand + " hours of " + courses(within) + " demand",
+                        within, set, new BitSet());
+            }
+
+            // two-hour sessions need two free slots in a row, which enough free hours do not guarantee
+            int blocks = 0;
+            for (int r = set.nextSetBit(0); r >= 0; r = set.nextSetBit(r + 1)) blocks += twoHourBlocks(roomSlotBooked[r]);
+            List<Var> doubles = within.stream().filter(v -> v.len == 2).toList();
+            if (doubles.size() > blocks && !set.isEmpty()) {
+                String supplyText = describeRooms(set) + " fit" + (set.cardinality() == 1 ? "s" : "") + " at most " + blocks +
+                        " two-hour sessions a week" + (anyBooked ? " around existing bookings" : "");
+                return capacityExplanation(supplyText + " < " + doubles.size() + " two-hour sessions of " + courses(doubles) + " demand",
+                        doubles, set, new BitSet());
+            }
+        }
+
+        int fullWeek = 0;
+        for (int perDay : slotsPerDay) fullWeek += Math.min(MAX_TEACHER_HOURS_PER_DAY, perDay);
+        for (BitSet set : teacherSets.keySet()) {
+            int supply = 0;
+            boolean anyBooked = false;
+            for (int t = set.nextSetBit(0); t >= 0; t = set.nextSetBit(t + 1)) {
+                for (int d = 0; d < slotsPerDay.length; d++) {
+                    int bookedHours = bookedTeacherSlots[t][d];
+                    supply += Math.max(0, Math.min(MAX_TEACHER_HOURS_PER_DAY - bookedHours, slotsPerDay[d] - bookedHours));
+                    anyBooked |= bookedHours > 0;
+                }
+            }
+            List<Var> within = within(set, v -> v.teacherSet);
+            int demand = within.stream().mapToInt(v -> v.len).sum();
+            if (demand > supply && !set.isEmpty()) {
+                String supplyText = anyBooked
+                        ? describeTeachers(set) + (set.cardinality() == 1 ? " has " : " have ") + supply + " free teacher-hours"
+                        : describeTeachers(set) + " × " + fullWeek + " h/week (" + MAX_TEACHER_HOURS_PER_DAY +
+                          " h/day) = " + supply + " teacher-hours";
+                return capacityExplanation(supplyText + " < " + demand + " hours of " + courses(within) + " demand",
+                        within, new BitSet(), set);
+            }
+        }
+        return null;
+    }
+
+    // most disjoint two-slot placements that avoid the booked slots; taking the earliest free one each time is optimal
+    private int twoHourBlocks(boolean[] booked) {
+        int blocks = 0;
+        int lastTaken = -1;   // second slot of the block taken last; the next placement starts there
+        for (Placement p : placements[2]) {
+            if (p.slots()[0] == lastTaken || booked[p.slots()[0]] || booked[p.slots()[1]]) continue;
+            blocks++;
+            lastTaken = p.slots()[1];
+        }
+        return blocks;
+    }
+
+    private List<Var> within(BitSet set, Function<Var, BitSet> candidates) {
+        List<Var> out = new ArrayList<>();
+        for (Var v : vars) {
+            BitSet outside = (BitSet) candidates.apply(v).clone();
+            outside.andNot(set);
+            if (outside.isEmpty()) out.add(v);
+        }
+        return out;
+    }
+
+    private Explanation capacityExplanation(String summary, List<Var> within, BitSet roomSet, BitSet teacherSet) {
+        List<SectionInput> secs = within.stream().map(v -> sections.get(v.section)).distinct().toList();
+        return new Explanation(summary, secs, ids(roomSet, i -> rooms.get(i).id()), ids(teacherSet, i -> teachers.get(i).id()), false);
+    }
+
+    /** A section with nothing to choose from before any search; null when its domain was emptied by others. */
+    private Explanation unplaceable(Var v) {
+        SectionInput sec = sections.get(v.section);
+        String label = label(sec);
+        if (v.rooms.length == 0) {
+            List<Classroom> type = ref.classroomsOfType(sec.preferredRoomTypeId());
+            String kind = type.isEmpty() ? "classroom" : ref.roomTypeName(sec.preferredRoomTypeId()) + " room";
+            // big enough rooms that exist but were closed are the cause, not the room sizes
+            List<Integer> closed = (type.isEmpty() ? rooms : type).stream()
+                    .filter(r -> r.capacity() >= sec.capacity() && unavailableRooms.contains(r.id()))
+                    .map(Classroom::id).toList();
+            if (!closed.isEmpty()) {
+                return new Explanation("Every " + kind + " that seats " + sec.capacity() + " students for " + label +
+                        " is closed", List.of(sec), closed, List.of(), true);
+            }
+            return new Explanation("No " + kind + " seats " + sec.capacity() + " students for " + label,
+                    List.of(sec), ids(v.roomSet, i -> rooms.get(i).id()), List.of(), true);
+        }
+        if (v.teachers.length == 0) {
+            List<Teacher> qualified = ref.teachersWithSpecialization(sec.courseSpecializationId());
+            List<Integer> away = (qualified.isEmpty() ? teachers : qualified).stream()
+                    .map(Teacher::id).filter(unavailableTeachers::contains).toList();
+            if (!away.isEmpty()) {
+                return new Explanation("Every teacher who can take " + label + " is unavailable",
+                        List.of(sec), List.of(), away, true);
+            }
+            return new Explanation("No teacher can take " + label, List.of(sec), List.of(), List.of(), true);
+        }
+        boolean onlyBookings = true;
+        for (Var w : v.neighbors) onlyBookings &= w.count > AC_DOMAIN_LIMIT;
+        if (!onlyBookings) return null;
+        return new Explanation("Every slot where " + describeRooms(v.roomSet) + " and " + describeTeachers(v.teacherSet) +
+                " are free together is already taken; nothing is left for a " + v.len + "-hour session of " + label,
+                List.of(sec), ids(v.roomSet, i -> rooms.get(i).id()), ids(v.teacherSet, i -> teachers.get(i).id()), true);
+    }
+
+    // the same bookings, unavailable rooms/teachers and avoided slots over fewer sections
+    private ExactScheduler subproblem(List<SectionInput> subset) {
+        ExactScheduler sub = new ExactScheduler(ref, subset, booked, unavailableRooms, unavailableTeachers);
+        sub.avoided.putAll(avoided);
+        return sub;
+    }
+
+    /**
+     * Deletion filter: drops each implicated section in turn and keeps it out when the rest is
+     * still infeasible. Falls back to the whole problem if the implicated sections alone can be
+     * placed, and reports {@code minimal = false} if time runs out first.
+     */
+    private Explanation minimize(BitSet start) {
+        List<SectionInput> core = new ArrayList<>();
+        for (int s = start.nextSetBit(0); s >= 0; s = start.nextSetBit(s + 1)) core.add(sections.get(s));
+        boolean minimal = true;
+        if (core.size() < sections.size()) {
+            Status alone = subproblem(core).decide(deadline);
+            if (alone != Status.INFEASIBLE) {
+                core = new ArrayList<>(sections);
+                minimal = alone != Status.TIMEOUT;
+            }
+        }
+        for (int i = 0; i < core.size() && core.size() > 1 && minimal; ) {
+            List<SectionInput> without = new ArrayList<>(core);
+            without.remove(i);
+            Status status = System.nanoTime() > deadline ? Status.TIMEOUT
+                    : subproblem(without).decide(deadline);
+            if (status == Status.INFEASIBLE) {
+                core = without;
+            } else if (status == Status.TIMEOUT) {
+                minimal = false;
+            } else {
+                i++;
+            }
+        }
+
+        ExactScheduler coreModel = subproblem(core);
+        BitSet roomSet = new BitSet();
+        BitSet teacherSet = new BitSet();
+        int hours = 0;
+        for (Var v : coreModel.vars) {
+            roomSet.or(v.roomSet);
+            teacherSet.or(v.teacherSet);
+            hours += v.len;
+        }
+        String who = core.stream().map(ExactScheduler::label).collect(Collectors.joining(", "));
+        String summary = who + " (" + hours + " hours) cannot all be placed with " + describeRooms(roomSet) +
+                " and " + describeTeachers(teacherSet) + (booked.isEmpty() ? "" : " around the existing bookings") +
+                ": every arrangement double-books a room or teacher or exceeds " + MAX_TEACHER_HOURS_PER_DAY + " teaching hours a day";
+        return new Explanation(summary, List.copyOf(core), ids(roomSet, i -> rooms.get(i).id()),
+                ids(teacherSet, i -> teachers.get(i).id()), minimal);
+    }
+
+    private String describeRooms(BitSet set) {
+        Map<String, Integer> byType = new TreeMap<>();
+        for (int r = set.nextSetBit(0); r >= 0; r = set.nextSetBit(r + 1)) {
+            byType.merge(ref.roomTypeName(rooms.get(r).roomTypeId()), 1, Integer::sum);
+        }
+        return describe(byType, set.cardinality() == 1 ? " room" : " rooms");
+    }
+
+    private String describeTeachers(BitSet set) {
+        Map<String, Integer> bySpecialization = new TreeMap<>();
+        for (int t = set.nextSetBit(0); t >= 0; t = set.nextSetBit(t + 1)) {
+            bySpecialization.merge(ref.specializationName(teachers.get(t).specializationId()), 1, Integer::sum);
+        }
+        return describe(bySpecialization, set.cardinality() == 1 ? " teacher" : " teachers");
+    }
+
+    private static String describe(Map<String, Integer> counts, String noun) {
+        return counts.entrySet().stream()
+                .map(e -> e.getValue() + " " + e.getKey())
+                .collect(Collectors.joining(" + ")) + noun;
+    }
+
+    private String courses(List<Var> within) {
+        return within.stream().map(v -> sections.get(v.section).courseCode()).distinct().collect(Collectors.joining(", "));
+    }
+
+    private static String label(SectionInput sec) {
+        return sec.courseCode() + " section " + sec.sectionNumber();
+    }
+
+    private static List<Integer> ids(BitSet set, IntFunction<Integer> id) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) out.add(id.apply(i));
+        return out;
+    }
+
+    private static int[][] toArrays(List<List<Integer>> lists) {
+        int[][] out = new int[lists.size()][];
+        for (int i = 0; i < lists.size(); i++) out[i] = lists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        return out;
+    }
+
+    // ---------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------
+
+    private record Placement(int index, int day, int[] slots) {}
+
+    /** One session; values encode (placement, room position, teacher position). */
+    private final class Var {
+        final int index;
+        final int section;
+        final int len;
+        final int order;          // among the section's sessions of this length
+        final int[] rooms;        // candidate room indexes
+        final int[] teachers;     // candidate teacher indexes
+        final int[] roomPos;      // room index -> position in rooms, or -1
+        final int[] teacherPos;
+        final BitSet roomSet = new BitSet();
+        final BitSet teacherSet = new BitSet();
+        final BitSet live;
+        final BitSet culprits = new BitSet();  // depths of the assignments that pruned this domain
+        int count;
+        int assigned = -1;
+        Var[] neighbors;
+
+        Var(int index, int section, int len, int order, int[] rooms, int[] teachers) {
+            this.index = index;
+            this.section = section;
+            this.len = len;
+            this.order = order;
+            this.rooms = rooms;
+            this.teachers = teachers;
+            this.roomPos = new int[ExactScheduler.this.rooms.size()];
+            this.teacherPos = new int[ExactScheduler.this.teachers.size()];
+            Arrays.fill(roomPos, -1);
+            Arrays.fill(teacherPos, -1);
+            for (int i = 0; i < rooms.length; i++) {
+                roomPos[rooms[i]] = i;
+                roomSet.set(rooms[i]);
+            }
+            for (int i = 0; i < teachers.length; i++) {
+                teacherPos[teachers[i]] = i;
+                teacherSet.set(teachers[i]);
+            }
+            int size = placements[len].length * rooms.length * teachers.length;
+            this.live = new BitSet(size);
+            live.set(0, size);
+            this.count = size;
+        }
+
+        int encode(int placement, int roomPosition, int teacherPosition) {
+            return (placement * rooms.length + roomPosition) * teachers.length + teacherPosition;
+        }
+
+        Placement placement(int value) {
+            return placements[len][value / (rooms.length * teachers.length)];
+        }
+
+        int room(int value) {
+            return rooms[(value / teachers.length) % rooms.length];
+        }
+
+        int teacher(int value) {
+            return teachers[value % teachers.length];
+        }
+    }
+
+    private static final class IntStack {
+        private int[] items = new int[1024];
+        private int size;
+
+        void push(int a, int b) {
+            if (size + 2 > items.length) items = Arrays.copyOf(items, items.length * 2);
+            items[size++] = a;
+            items[size++] = b;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    private static final class OutOfTime extends RuntimeException {
+        OutOfTime() {
+            super("exact search ran out of time", null, false, false);
+        }
+    }
+}
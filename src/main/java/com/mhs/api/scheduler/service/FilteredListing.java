@@ -0,0 +1,41 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.model.SectionFilter;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A listing query narrowed by {@link SectionFilter}: {@code head} ends inside the WHERE clause
+ * over sections {@code s}, the filter's conditions, keyset bound and limit follow, then
+ * {@code tail}. Every filter combination gets its own named {@link SqlStatement}, built on first
+ * use, so at most {@link SectionFilter#SHAPES} statements per listing are ever prepared.
+ */
+public final class FilteredListing {
+
+    private final String name;
+    private final String head;
+    private final String tail;
+    private final AtomicReferenceArray<SqlStatement> statements = new AtomicReferenceArray<>(SectionFilter.SHAPES);
+
+    public FilteredListing(String name, String head, String tail) {
+        this.name = name;
+        this.head = head;
+        this.tail = tail;
+    }
+
+    public FilteredListing(String name, String head) {
+        this(name, head, "");
+    }
+
+    public SqlStatement statement(SectionFilter filter) {
+        int shape = filter.shape();
+        SqlStatement statement = statements.get(shape);
+        if (statement == null) {
+            statement = SqlStatement.of(name + "#" + shape,
+                    head + SectionFilter.where(shape) + SectionFilter.ORDER_AND_LIMIT + tail);
+            // a racing thread built an equal statement; either one will do
+            statements.compareAndSet(shape, null, statement);
+        }
+        return statement;
+    }
+}
@@ -0,0 +1,95 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.config.JfrProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * On-demand flight recordings around a single generate call.
+ *
+ * The recording uses the configured JFC settings (default "profile") plus the
+ * {@link SchedulerEvents}, is capped by maplewood.jfr.max-size-mb and max-duration-seconds, and is
+ * written to maplewood.jfr.directory when the call ends, failed calls included. One recording
+ * runs at a time; a profiled call that finds one running goes ahead unrecorded.
+ */
+@Component
+public class GenerationRecorder {
+
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final JfrProperties properties;
+    private final SchoolRegistry schools;
+    private final AtomicBoolean recording = new AtomicBoolean();
+
+    public GenerationRecorder(JfrProperties properties, SchoolRegistry schools) {
+        this.properties = properties;
+        this.schools = schools;
+    }
+
+    /** Runs {@code work}, recorded when {@code profile} is set; the result then says where the file went. */
+    public Map<String, Object> record(int semesterId, boolean profile, Supplier<Map<String, Object>> work) {
+        if (!profile) return work.get();
+        if (!properties.onDemand()) {
+            throw new IllegalArgumentException("On-demand recordings are disabled (maplewood.jfr.on-demand)");
+        }
+        Map<String, Object> info = new LinkedHashMap<>();
+        if (!recording.compareAndSet(false, true)) {
+            Map<String, Object> result = work.get();
+            info.put("skipped", "another recording is in progress");
+            result.put("recording", info);
+            return result;
+        }
+        try (Recording jfr = start(semesterId)) {
+            Map<String, Object> result;
+            try {
+                result = work.get();
+            } finally {
+                if (jfr.getState() == RecordingState.RUNNING) jfr.stop();
+                System.out.println("🎥 Flight recording of generate for semester " + semesterId + " written to " + jfr.getDestination());
+            }
+            info.put("file", jfr.getDestination().toString());
+            info.put("max_size_mb", properties.maxSizeMb());
+            info.put("max_duration_seconds", properties.maxDurationSeconds());
+            result.put("recording", info);
+            return result;
+        } finally {
+            recording.set(false);
+        }
+    }
+
+    private Recording start(int semesterId) {
+        try {
+            Path dir = Files.createDirectories(Path.of(properties.directory()));
+            String name = "generate-" + schools.current() + "-" + semesterId + "-" + LocalDateTime.now().format(STAMP);
+            Recording jfr = new Recording(Configuration.getConfiguration(properties.settings()));
+            jfr.setName(name);
+            jfr.setToDisk(true);
+            jfr.setMaxSize(properties.maxSizeMb() * 1024 * 1024);
+            // stops and writes the file on its own if the call outlives it
+            jfr.setDuration(Duration.ofSeconds(properties.maxDurationSeconds()));
+            jfr.setDestination(dir.resolve(name + ".jfr"));
+            jfr.enable(SchedulerEvents.SolverPhase.class);
+            jfr.enable(SchedulerEvents.SectionPlacement.class);
+            jfr.enable(SchedulerEvents.Backjump.class);
+            jfr.enable(SchedulerEvents.DbStatement.class);
+            jfr.start();
+            return jfr;
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Could not start flight recording: " + e.getMessage(), e);
+        }
+    }
+}
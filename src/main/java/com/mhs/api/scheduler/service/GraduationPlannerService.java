@@ -0,0 +1,428 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.dto.GraduationPlanDto;
+import com.mhs.api.scheduler.dto.PlannedSemesterDto;
+import com.mhs.api.scheduler.model.Course;
+import com.mhs.api.scheduler.model.Semester;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plans a feasible course sequence from the active semester up to graduation.
+ *
+ * The search is a depth-first walk over (semester slot, completed-course set) states,
+ * memoized on that pair. Each slot may take up to 5 courses whose semester_order, grade band
+ * and prerequisite are satisfied. Branches are pruned with an admissible lower bound
+ * (prerequisite chain length of the remaining core courses and the number of courses still
+ * needed to reach the credit requirement), and the search stops early once a branch meets it.
+ *
+ * A slot with more eligible courses than fit only combines the best {@link #BRANCH_CANDIDATES}
+ * of them, widening to all of them if none of those combinations can graduate. Past
+ * {@link #MAX_EXPANSIONS} every open state tries just its first combination, so the search
+ * finishes within the budget plus one dive to the horizon. The plan is reported optimal only
+ * when neither shortcut could have hidden a shorter one.
+ */
+@Service
+public class GraduationPlannerService {
+
+    static final int MAX_COURSES_PER_SEMESTER = 5;
+    static final int REQUIRED_CREDITS_TENTHS = 300;   // 30 credits, kept in tenths to avoid float sums
+    static final int EXTENSION_SEMESTERS = 2;         // students may extend to a 5th year
+    static final int BRANCH_CANDIDATES = 9;           // combinations are drawn from the best 9 eligible courses
+    static final int MAX_EXPANSIONS = 50_000;         // keeps a single request interactive
+    private static final int INF = Integer.MAX_VALUE / 2;
+
+    private static final SqlStatement STUDENT_GRADE = SqlStatement.of("students.gradeLevel",
+            "SELECT grade_level FROM students WHERE id = ?");
+    private static final SqlStatement PASSED_COURSES = SqlStatement.of("history.passedCourses",
+            "SELECT DISTINCT course_id FROM student_course_history WHERE student_id = ? AND status = 'passed'");
+
+    private final DataService dataService;
+    private final ReferenceCatalog catalog;
+
+    private final SchoolRegistry schools;
+
+    // per school, courses indexed densely for the bitset; rebuilt whenever that school's catalog is swapped
+    private final Map<String, PlanCatalog> planCatalogs = new ConcurrentHashMap<>();
+
+    public GraduationPlannerService(DataService dataService, ReferenceCatalog catalog, SchoolRegistry schools) {
+        this.dataService = dataService;
+        this.catalog = catalog;
+        this.schools = schools;
+    }
+
+    public GraduationPlanDto plan(int studentId) {
+        int gradeLevel = dataService.queryInt(STUDENT_GRADE, -1, studentId);
+        if (gradeLevel == -1) {
+            throw new IllegalArgumentException("Student not found: " + studentId);
+        }
+
+        ReferenceData ref = catalog.current();
+        Semester active = ref.activeSemester()
+                .orElseThrow(() -> new IllegalStateException("No active semester configured"));
+        int startYear = active.year();
+        int startOrder = active.orderInYear();
+
+        PlanCourse[] courses = planCourses(ref);
+        Map<Integer, PlanCourse> byId = new HashMap<>();
+        for (PlanCourse c : courses) byId.put(c.id, c);
+
+        CourseSet completed = CourseSet.empty(courses.length);
+        int earnedTenths = 0;
+        for (int courseId : dataService.list(PASSED_COURSES, (rs, i) -> rs.getInt(1), studentId)) {
+            PlanCourse c = byId.get(courseId);
+            if (c == null) continue;
+            completed = completed.with(c.index);
+            earnedTenths += c.creditTenths;
+        }
+
+        // slots run from the active semester to the spring of 12th grade, plus the extension year
+        int regularSlots = (12 - gradeLevel) * 2 + (startOrder == 1 ? 2 : 1);
+        int horizon = Math.max(regularSlots, 0) + EXTENSION_SEMESTERS;
+        int[] slotOrder = new int[horizon];
+        int[] slotYear = new int[horizon];
+        int[] slotGrade = new int[horizon];
+        int order = startOrder, year = startYear, grade = gradeLevel;
+        for (int s = 0; s < horizon; s++) {
+            slotOrder[s] = order;
+            slotYear[s] = year;
+            slotGrade[s] = Math.min(grade, 12); // extension year follows 12th grade bands
+            if (order == 2) { order = 1; year++; grade++; } else { order = 2; }
+        }
+
+        Search search = new Search(courses, slotOrder, slotGrade);
+        int needed = search.solve(0, completed, earnedTenths);
+
+        List<PlannedSemesterDto> semesters = new ArrayList<>();
+        int plannedTenths = earnedTenths;
+        boolean feasible = needed < INF;
+        if (feasible) {
+            CourseSet mask = completed;
+            int credits = earnedTenths;
+            for (int s = 0; s < needed; s++) {
+                Node node = search.memo.get(new StateKey(s, mask));
+                if (node == null) break;
+                List<String> codes = new ArrayList<>();
+                int semTenths = 0;
+                for (PlanCourse c : courses) {
+                    if (node.taken.has(c.index)) {
+                        codes.add(c.code);
+                        semTenths += c.creditTenths;
+                    }
+                }
+                semesters.add(new PlannedSemesterDto(semesterName(slotOrder[s], slotYear[s]), slotGrade[s], codes, semTenths / 10.0));
+                mask = mask.union(node.taken);
+                credits += semTenths;
+            }
+            plannedTenths = credits;
+        }
+
+        String graduation = feasible && needed > 0
+                ? semesterName(slotOrder[needed - 1], slotYear[needed - 1])
+                : feasible ? "Graduated" : null;
+
+        return new GraduationPlanDto(
+                studentId,
+                feasible,
+                !search.budgetExhausted && !search.candidatesCut,
+                feasible ? needed : -1,
+                graduation,
+                earnedTenths / 10.0,
+                plannedTenths / 10.0,
+                semesters
+        );
+    }
+
+    private static String semesterName(int orderInYear, int year) {
+        return (orderInYear == 1 ? "Fall " : "Spring ") + year;
+    }
+
+    private PlanCourse[] planCourses(ReferenceData ref) {
+        String school = schools.current();
+        PlanCatalog c = planCatalogs.get(school);
+        if (c == null || c.source() != ref) {
+            synchronized (this) {
+                c = planCatalogs.get(school);
+                if (c == null || c.source() != ref) {
+                    c = new PlanCatalog(ref, buildPlanCourses(ref.courses()));
+                    planCatalogs.put(school, c);
+                }
+            }
+        }
+        return c.courses();
+    }
+
+    private record PlanCatalog(ReferenceData source, PlanCourse[] courses) {}
+
+    private static PlanCourse[] buildPlanCourses(List<Course> rows) {
+        PlanCourse[] courses = new PlanCourse[rows.size()];
+        Map<Integer, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            indexById.put(rows.get(i).id(), i);
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            Course r = rows.get(i);
+            courses[i] = new PlanCourse(
+                    i,
+                    r.id(),
+                    r.code(),
+                    (int) Math.round(r.credits() * 10),
+                    r.core(),
+                    r.prerequisiteId() == -1 ? -1 : indexById.getOrDefault(r.prerequisiteId(), -1),
+                    r.gradeLevelMin(),
+                    r.gradeLevelMax(),
+                    r.semesterOrder()
+            );
+        }
+        // number of courses that (transitively) depend on each course; used for branch ordering
+        for (PlanCourse c : courses) {
+            for (int p = c.prereqIndex; p >= 0; p = courses[p].prereqIndex) {
+                courses[p].dependents++;
+            }
+        }
+        return courses;
+    }
+
+    /** Memoized depth-first search over one student's remaining semesters. */
+    private static final class Search {
+        final PlanCourse[] courses;
+        final int[] slotOrder;
+        final int[] slotGrade;
+        final int horizon;
+        final CourseSet coreMask;
+        final int[] lastSlot;   // last slot in which a course can still be taken, -1 if never
+        final Map<StateKey, Node> memo = new HashMap<>();
+        int expansions;
+        boolean budgetExhausted;
+        boolean candidatesCut;  // some slot settled above its lower bound without trying every combination
+
+        Search(PlanCourse[] courses, int[] slotOrder, int[] slotGrade) {
+            this.courses = courses;
+            this.slotOrder = slotOrder;
+            this.slotGrade = slotGrade;
+            this.horizon = slotOrder.length;
+            CourseSet core = CourseSet.empty(courses.length);
+            lastSlot = new int[courses.length];
+            for (PlanCourse c : courses) {
+                if (c.core) core = core.with(c.index);
+                lastSlot[c.index] = -1;
+                for (int s = horizon - 1; s >= 0; s--) {
+                    if (offeredIn(c, s)) { lastSlot[c.index] = s; break; }
+                }
+            }
+            this.coreMask = core;
+        }
+
+        // core courses stay open above their band so failed or missed ones can be made up
+        boolean offeredIn(PlanCourse c, int slot) {
+            return c.semesterOrder == slotOrder[slot]
+                    && slotGrade[slot] >= c.gradeMin && (c.core || slotGrade[slot] <= c.gradeMax);
+        }
+
+        boolean goalMet(CourseSet mask, int creditTenths) {
+            return mask.containsAll(coreMask) && creditTenths >= REQUIRED_CREDITS_TENTHS;
+        }
+
+        /** Returns the fewest semesters (from slot) needed to graduate, or INF. */
+        int solve(int slot, CourseSet mask, int creditTenths) {
+            if (goalMet(mask, creditTenths)) return 0;
+            if (slot >= horizon) return INF;
+
+            StateKey key = new StateKey(slot, mask);
+            Node cached = memo.get(key);
+            if (cached != null) return cached.remaining;
+
+            int bound = lowerBound(slot, mask, creditTenths);
+            if (bound > horizon - slot) {
+                memo.put(key, new Node(INF, CourseSet.empty(courses.length)));
+                return INF;
+            }
+            // over budget, the open states still finish: each takes one combination, so what
+            // remains is a single dive of at most horizon expansions
+            if (++expansions > MAX_EXPANSIONS) budgetExhausted = true;
+
+            List<PlanCourse> eligible = eligible(slot, mask);
+            int best = INF;
+            CourseSet bestTaken = CourseSet.empty(courses.length);
+
+            if (eligible.size() <= MAX_COURSES_PER_SEMESTER) {
+                // taking every eligible course never hurts: credits only grow and prerequisites only unlock
+                CourseSet taken = CourseSet.empty(courses.length);
+                int gained = 0;
+                for (PlanCourse c : eligible) { taken = taken.with(c.index); gained += c.creditTenths; }
+                int sub = solve(slot + 1, mask.union(taken), creditTenths + gained);
+                if (sub < INF) { best = sub + 1; bestTaken = taken; }
+            } else {
+                int k = Math.min(eligible.size(), BRANCH_CANDIDATES);
+                while (true) {
+                    int[] pick = new int[MAX_COURSES_PER_SEMESTER];
+                    for (int i = 0; i < pick.length; i++) pick[i] = i;
+                    while (true) {
+                        CourseSet taken = CourseSet.empty(courses.length);
+                        int gained = 0;
+                        for (int i : pick) { PlanCourse c = eligible.get(i); taken = taken.with(c.index); gained += c.creditTenths; }
+                        int sub = solve(slot + 1, mask.union(taken), creditTenths + gained);
+                        if (sub < INF && sub + 1 < best) { best = sub + 1; bestTaken = taken; }
+                        if (best <= bound || budgetExhausted) break;
+                        if (!nextCombination(pick, k)) break;
+                    }
+                    // none of the best candidates leads to graduation, but the others might
+                    if (best < INF || budgetExhausted || k == eligible.size()) break;
+                    k = eligible.size();
+                }
+                // combinations with the courses left out might have graduated sooner
+                if (best > bound && k < eligible.size()) candidatesCut = true;
+            }
+
+            memo.put(key, new Node(best, bestTaken));
+            return best;
+        }
+
+        List<PlanCourse> eligible(int slot, CourseSet mask) {
+            List<PlanCourse> out = new ArrayList<>();
+            for (PlanCourse c : courses) {
+                if (mask.has(c.index)) continue;
+                if (!offeredIn(c, slot)) continue;
+                if (c.prereqIndex >= 0 && !mask.has(c.prereqIndex)) continue;
+                out.add(c);
+            }
+            // core first, then the course whose last chance comes soonest, then the one unlocking most
+            out.sort(Comparator.<PlanCourse>comparingInt(c -> c.core ? 0 : 1)
+                    .thenComparingInt(c -> lastSlot[c.index])
+                    .thenComparingInt(c -> -c.dependents));
+            return out;
+        }
+
+        int lowerBound(int slot, CourseSet mask, int creditTenths) {
+            // a) every missing core course must fit its remaining prerequisite chain into the horizon
+            int[] earliest = new int[courses.length];
+            Arrays.fill(earliest, -2);
+            int chainBound = 0;
+            int missingCores = 0;
+            int missingCoreTenths = 0;
+            for (PlanCourse c : courses) {
+                if (!c.core || mask.has(c.index)) continue;
+                missingCores++;
+                missingCoreTenths += c.creditTenths;
+                int e = earliestSlot(c.index, slot, mask, earliest);
+                if (e >= INF) return INF;
+                chainBound = Math.max(chainBound, e - slot + 1);
+            }
+
+            // b) enough courses must still be taken to reach the credit requirement
+            int maxElectiveTenths = 0;
+            for (PlanCourse c : courses) {
+                if (!c.core && !mask.has(c.index)) maxElectiveTenths = Math.max(maxElectiveTenths, c.creditTenths);
+            }
+            int missingTenths = Math.max(0, REQUIRED_CREDITS_TENTHS - creditTenths - missingCoreTenths);
+            int electivesNeeded = 0;
+            if (missingTenths > 0) {
+                if (maxElectiveTenths == 0) return INF;
+                electivesNeeded = (missingTenths + maxElectiveTenths - 1) / maxElectiveTenths;
+            }
+            int countBound = (missingCores + electivesNeeded + MAX_COURSES_PER_SEMESTER - 1) / MAX_COURSES_PER_SEMESTER;
+
+            return Math.max(1, Math.max(chainBound, countBound));
+        }
+
+        private int earliestSlot(int idx, int from, CourseSet mask, int[] earliest) {
+            if (mask.has(idx)) return from - 1;
+            if (earliest[idx] != -2) return earliest[idx];
+            PlanCourse c = courses[idx];
+            int start = from;
+            if (c.prereqIndex >= 0) {
+                int p = earliestSlot(c.prereqIndex, from, mask, earliest);
+                if (p >= INF) { earliest[idx] = INF; return INF; }
+                start = Math.max(start, p + 1);
+            }
+            int result = INF;
+            for (int s = start; s < horizon; s++) {
+                if (offeredIn(c, s)) { result = s; break; }
+            }
+            earliest[idx] = result;
+            return result;
+        }
+
+        // advances pick to the next k-choose-n combination in lexicographic order
+        private static boolean nextCombination(int[] pick, int k) {
+            int n = pick.length;
+            int i = n - 1;
+            while (i >= 0 && pick[i] == k - n + i) i--;
+            if (i < 0) return false;
+            pick[i]++;
+            for (int j = i + 1; j < n; j++) pick[j] = pick[j - 1] + 1;
+            return true;
+        }
+    }
+
+    private record StateKey(int slot, CourseSet completed) {}
+
+    private record Node(int remaining, CourseSet taken) {}
+
+    /** Immutable set of course indices, one bit each, sized to the catalog so it has no ceiling. */
+    private static final class CourseSet {
+        private final long[] words;
+
+        private CourseSet(long[] words) {
+            this.words = words;
+        }
+
+        static CourseSet empty(int courses) {
+            return new CourseSet(new long[(courses + Long.SIZE - 1) / Long.SIZE]);
+        }
+
+        boolean has(int index) {
+            return (words[index >>> 6] & (1L << index)) != 0;
+        }
+
+        CourseSet with(int index) {
+            if (has(index)) return this;
+            long[] out = words.clone();
+            out[index >>> 6] |= 1L << index;
+            return new CourseSet(out);
+        }
+
+        CourseSet union(CourseSet other) {
+            long[] out = words.clone();
+            for (int w = 0; w < out.length; w++) out[w] |= other.words[w];
+            return new CourseSet(out);
+        }
+
+        boolean containsAll(CourseSet other) {
+            for (int w = 0; w < words.length; w++) if ((words[w] & other.words[w]) != other.words[w]) return false;
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CourseSet other && Arrays.equals(words, other.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+    }
+
+    private static final class PlanCourse {
+        final int index;
+        final int id;
+        final String code;
+        final int creditTenths;
+        final boolean core;
+        final int prereqIndex;
+        final int gradeMin;
+        final int gradeMax;
+        final int semesterOrder;
+        int dependents;
+
+        PlanCourse(int index, int id, String code, int creditTenths, boolean core, int prereqIndex,
+               int gradeMin, int gradeMax, int semesterOrder) {
+            this.index = index; this.id = id; this.code = code; this.creditTenths = creditTenths;
+            this.core = core; this.prereqIndex = prereqIndex; this.gradeMin = gradeMin;
+            this.gradeMax = gradeMax; this.semesterOrder = semesterOrder;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.model.Classroom;
+import com.mhs.api.scheduler.model.SectionInput;
+import com.mhs.api.scheduler.model.Teacher;
+import com.mhs.api.scheduler.model.TimeSlot;
+
+import java.util.*;
+
+/**
+ * The placement pass behind greedy generate: hardest sections first (special room type, more
+ * hours), each session in the first window, room and teacher that are free, and no decision is
+ * ever revisited. A section that runs out of options is left unscheduled as a whole.
+ *
+ * Everything it reads comes in through the constructor, so a captured {@link SolverSnapshot}
+ * replays exactly what generate saw. Instances are single-use and not thread-safe.
+ */
+public final class GreedyScheduler {
+
+    public record Result(List<ExactScheduler.Session> sessions, List<Integer> assignedSections,
+                         List<Integer> unscheduledSections, long elapsedMillis) {}
+
+    private final ReferenceData ref;
+    private final List<SectionInput> sections;
+    private final List<ExactScheduler.Booking> booked;
+
+    public GreedyScheduler(ReferenceData ref, List<SectionInput> sections, List<ExactScheduler.Booking> booked) {
+        this.ref = ref;
+        this.sections = List.copyOf(sections);
+        this.booked = List.copyOf(booked);
+    }
+
+    public Result place() {
+        long start = System.nanoTime();
+        Map<String, List<TimeSlot>> timeslotsByDay = ref.timeslotsByDay();
+        List<Classroom> rooms = ref.classrooms();
+        List<Teacher> teachers = ref.teachers();
+
+        // occupancy maps
+        Map<Integer, Set<Integer>> roomOccupied = new HashMap<>();    // timeslotId -> roomIds
+        Map<Integer, Set<Integer>> teacherOccupied = new HashMap<>(); // timeslotId -> teacherIds
+        Map<Integer, Map<String, Integer>> teacherDailyHours = new HashMap<>(); // teacherId -> (day->hours)
+
+        // other semesters' assignments are still in the table and hold their rooms and teachers;
+        // ignoring them made INSERT OR IGNORE drop every clashing row without a word
+        for (ExactScheduler.Booking b : booked) {
+            roomOccupied.computeIfAbsent(b.timeslotId(), k -> new HashSet<>()).add(b.roomId());
+            teacherOccupied.computeIfAbsent(b.timeslotId(), k -> new HashSet<>()).add(b.teacherId());
+            TimeSlot ts = ref.timeslot(b.timeslotId());
+            if (ts != null) teacherDailyHours.computeIfAbsent(b.teacherId(), k -> new HashMap<>()).merge(ts.day(), 1, Integer::sum);
+        }
+
+        List<ExactScheduler.Session> placedSessions = new ArrayList<>();
+        List<Integer> assignedSections = new ArrayList<>();
+        List<Integer> unscheduledSections = new ArrayList<>();
+
+        // sort by hardness (special room + more hours)
+        List<SectionInput> ordered = new ArrayList<>(sections);
+        ordered.sort((a, b) -> {
+            int sa = a.courseHours();
+            int sb = b.courseHours();
+            if (a.preferredRoomTypeId() != -1) sa += 3;
+            if (b.preferredRoomTypeId() != -1) sb += 3;
+            return Integer.compare(sb, sa);
+        });
+
+        for (SectionInput sec : ordered) {
+            SchedulerEvents.SectionPlacement placement = new SchedulerEvents.SectionPlacement();
+            placement.begin();
+            int windowsTried = 0;
+            int pairsChecked = 0;
+            int secId = sec.id();
+            int hours = sec.courseHours();
+
+            List<Classroom> roomCandidates = ref.classroomsOfType(sec.preferredRoomTypeId());
+            if (roomCandidates.isEmpty()) roomCandidates = rooms;
+            List<Teacher> teacherCandidates = ref.teachersWithSpecialization(sec.courseSpecializationId());
+            if (teacherCandidates.isEmpty()) teacherCandidates = teachers;
+
+            // split hours into sessions (prefer 2h when possible)
+            List<Integer> sessionLens = ExactScheduler.sessionLengths(hours);
+
+            boolean allPlaced = true;
+            List<ExactScheduler.Session> sessions = new ArrayList<>();
+            // slots this section already meets in; two of its sessions in one slot would collide
+            // on UNIQUE(section_id, timeslot_id) and the second would be silently dropped
+            Set<Integer> sectionSlots = new HashSet<>();
+
+            // schedule each session
+            for (int len : sessionLens) {
+                boolean placed = false;
+                for (var dayEntry : timeslotsByDay.entrySet()) {
+                    String day = dayEntry.getKey();
+                    List<TimeSlot> daySlots = dayEntry.getValue();
+                    for (int i = 0; i < daySlots.size(); i++) {
+                        if (len == 2 && i + 1 >= daySlots.size()) continue;
+                        // ensure we do not schedule across lunch — our timeslots avoid lunch already
+                        List<Integer> candidateSlots = (len == 1)
+                                ? List.of(daySlots.get(i).id())
+                                : List.of(daySlots.get(i).id(), daySlots.get(i + 1).id());
+                        if (candidateSlots.stream().anyMatch(sectionSlots::contains)) continue;
+                        windowsTried++;
+
+                        // check room + teacher availability for this candidate
+                        outer:
+                        for (Classroom room : roomCandidates) {
+                            int roomId = room.id();
+                            if (room.capacity() < sec.capacity()) continue;
+
+                            // room conflict?
+                            boolean roomConflict = candidateSlots.stream().anyMatch(ts -> roomOccupied.getOrDefault(ts, Set.of()).contains(roomId));
+                            if (roomConflict) continue;
+
+                            for (Teacher teacher : teacherCandidates) {
+                                int tid = teacher.id();
+                                pairsChecked++;
+                                boolean teacherConflict = candidateSlots.stream().anyMatch(ts -> teacherOccupied.getOrDefault(ts, Set.of()).contains(tid));
+                                if (teacherConflict) continue;
+
+                                int curr = teacherDailyHours.getOrDefault(tid, new HashMap<>()).getOrDefault(day, 0);
+                                if (curr + len > ExactScheduler.MAX_TEACHER_HOURS_PER_DAY) continue;
+
+                                // PASS: assign
+                                sessions.add(new ExactScheduler.Session(secId, candidateSlots, roomId, tid));
+                                // mark occupancy
+                                candidateSlots.forEach(ts -> {
+                                    roomOccupied.computeIfAbsent(ts, k -> new HashSet<>()).add(roomId);
+                                    teacherOccupied.computeIfAbsent(ts, k -> new HashSet<>()).add(tid);
+                                });
+                                teacherDailyHours.computeIfAbsent(tid, k -> new HashMap<>()).put(day, curr + len);
+                                sectionSlots.addAll(candidateSlots);
+
+                                placed = true;
+                                break outer;
+                            }
+                        }
+                        if (placed) break;
+                    }
+                    if (placed) break;
+                } // end day search
+
+                if (!placed) { allPlaced = false; break; }
+            } // end sessions for section
+
+            placement.end();
+            if (placement.shouldCommit()) {
+                placement.sectionId = secId;
+                placement.courseCode = sec.courseCode();
+                placement.sessions = sessionLens.size();
+                placement.roomCandidates = roomCandidates.size();
+                placement.teacherCandidates = teacherCandidates.size();
+                placement.windowsTried = windowsTried;
+                placement.pairsChecked = pairsChecked;
+                placement.placed = allPlaced;
+                placement.commit();
+            }
+
+            // a section that could not be completed keeps nothing, but the occupancy it took stays
+            // taken, as it always has
+            if (allPlaced) {
+                placedSessions.addAll(sessions);
+                assignedSections.add(secId);
+            } else {
+                unscheduledSections.add(secId);
+            }
+        } // end all sections
+
+        return new Result(placedSessions, assignedSections, unscheduledSections,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,230 @@
+package com.mhs.api.scheduler.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single writer thread that commits small writes in groups.
+ *
+ * Callers {@link #submit} a unit of work and get a future. The writer takes the first queued
+ * write, keeps collecting for up to {@code windowMicros} or until {@code maxBatchSize} writes are
+ * in hand, then runs them all on the writer connection inside one transaction. If the batch
+ * fails it is rolled back and each write is replayed in its own transaction, so one bad write
+ * only fails its own caller. The queue is bounded: when it stays full for
+ * {@code enqueueTimeoutMs} the write is rejected instead of piling up.
+ *
+ * An optional {@link CommitListener} hears about every commit and rollback while the writer still
+ * holds the connection, before any caller is released.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface WriteWork<T> {
+        T apply(Connection con) throws SQLException;
+    }
+
+    public interface CommitListener {
+        CommitListener NONE = new CommitListener() {
+            @Override
+            public void committed() {
+            }
+
+            @Override
+            public void rolledBack() {
+            }
+        };
+
+        /** A throw here fails the writes that were just committed. */
+        void committed();
+
+        void rolledBack();
+    }
+
+    private final DataSource dataSource;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final long enqueueTimeoutMs;
+    private final CommitListener listener;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final Counter batches;
+    private final Counter writes;
+    private final Counter rejected;
+    private final Counter failedBatches;
+    private final DistributionSummary batchSize;
+    private final Timer commitTimer;
+
+    public GroupCommitWriter(DataSource dataSource, int queueCapacity, int maxBatchSize, long windowMicros,
+                             long enqueueTimeoutMs, MeterRegistry registry) {
+        this(dataSource, queueCapacity, maxBatchSize, windowMicros, enqueueTimeoutMs, CommitListener.NONE, registry);
+    }
+
+    public GroupCommitWriter(DataSource dataSource, int queueCapacity, int maxBatchSize, long windowMicros,
+                             long enqueueTimeoutMs, CommitListener listener, MeterRegistry registry) {
+        this("sqlite-writer", dataSource, queueCapacity, maxBatchSize, windowMicros, enqueueTimeoutMs, listener,
+                registry, Tags.empty());
+    }
+
+    /** {@code name} is the thread name; {@code tags} tell the meters of several writers apart. */
+    public GroupCommitWriter(String name, DataSource dataSource, int queueCapacity, int maxBatchSize, long windowMicros,
+                             long enqueueTimeoutMs, CommitListener listener, MeterRegistry registry, Tags tags) {
+        this.dataSource = dataSource;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.listener = listener;
+
+        this.batches = registry.counter("sqlite.writer.batches", tags);
+        this.writes = registry.counter("sqlite.writer.writes", tags);
+        this.rejected = registry.counter("sqlite.writer.rejected", tags);
+        this.failedBatches = registry.counter("sqlite.writer.batches.failed", tags);
+        this.batchSize = DistributionSummary.builder("sqlite.writer.batch.size").tags(tags).register(registry);
+        this.commitTimer = Timer.builder("sqlite.writer.commit").tags(tags).register(registry);
+        registry.gauge("sqlite.writer.queue.depth", tags, queue, BlockingQueue::size);
+
+        this.thread = new Thread(this::loop, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public <T> CompletableFuture<T> submit(WriteWork<T> work) {
+        PendingWrite<T> pending = new PendingWrite<>(work, new CompletableFuture<>());
+        boolean accepted;
+        try {
+            accepted = running && queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            rejected.increment();
+            pending.future.completeExceptionally(new RejectedExecutionException("SQLite write queue is full"));
+        }
+        return pending.future;
+    }
+
+    private void loop() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    // take whatever is already queued, then wait out the rest of the window
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) continue;
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    PendingWrite<?> next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                if (!running) break;
+            } catch (RuntimeException e) {
+                listener.rolledBack();
+                batch.forEach(p -> p.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        long start = System.nanoTime();
+        try (Connection con = dataSource.getConnection()) {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            List<Object> results = new ArrayList<>(batch.size());
+            boolean committed = false;
+            try {
+                for (PendingWrite<?> p : batch) results.add(p.work.apply(con));
+                con.commit();
+                committed = true;
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                listener.rolledBack();
+                failedBatches.increment();
+                replayIndividually(con, batch);
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            // still holding the connection, so listeners see commits in order
+            if (committed) completeCommitted(batch, results);
+        } catch (SQLException e) {
+            batch.forEach(p -> p.future.completeExceptionally(e));
+        }
+        batches.increment();
+        writes.increment(batch.size());
+        batchSize.record(batch.size());
+        commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void replayIndividually(Connection con, List<PendingWrite<?>> batch) throws SQLException {
+        for (PendingWrite<?> p : batch) {
+            Object result;
+            try {
+                result = p.work.apply(con);
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                listener.rolledBack();
+                p.future.completeExceptionally(e);
+                continue;
+            }
+            completeCommitted(List.of(p), Collections.singletonList(result));
+        }
+    }
+
+    private void completeCommitted(List<PendingWrite<?>> committed, List<Object> results) {
+        try {
+            listener.committed();
+        } catch (RuntimeException e) {
+            committed.forEach(p -> p.future.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < committed.size(); i++) committed.get(i).complete(results.get(i));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread.interrupt();
+        PendingWrite<?> left;
+        while ((left = queue.poll()) != null) {
+            left.future.completeExceptionally(new RejectedExecutionException("SQLite writer is shut down"));
+        }
+    }
+
+    private record PendingWrite<T>(WriteWork<T> work, CompletableFuture<T> future) {
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+}
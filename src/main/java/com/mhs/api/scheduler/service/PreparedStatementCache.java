@@ -0,0 +1,63 @@
+package com.mhs.api.scheduler.service;
+
+import org.sqlite.SQLiteConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps compiled statements per physical SQLite connection.
+ *
+ * Statements are prepared on the unwrapped connection so the pool does not close them when the
+ * connection is returned. A pooled connection is only used by one thread at a time, so the
+ * per-connection maps need no locking of their own. Each map holds at most
+ * {@link #MAX_STATEMENTS}, least recently used first out, and an evicted statement is closed,
+ * so a caller minting statements per request cannot grow it without bound.
+ */
+final class PreparedStatementCache {
+
+    // the named statements plus every filter shape of the listings (see FilteredListing) fit with room to spare
+    static final int MAX_STATEMENTS = 512;
+
+    private final Map<Connection, Map<SqlStatement, PreparedStatement>> byConnection = new HashMap<>();
+
+    PreparedStatement prepare(Connection con, SqlStatement statement) throws SQLException {
+        Connection physical = con.isWrapperFor(SQLiteConnection.class) ? con.unwrap(SQLiteConnection.class) : con;
+        Map<SqlStatement, PreparedStatement> statements = statementsFor(physical);
+        PreparedStatement ps = statements.get(statement);
+        if (ps == null || ps.isClosed()) {
+            ps = physical.prepareStatement(statement.sql());
+            statements.put(statement, ps);
+        }
+        return ps;
+    }
+
+    private synchronized Map<SqlStatement, PreparedStatement> statementsFor(Connection physical) throws SQLException {
+        Map<SqlStatement, PreparedStatement> statements = byConnection.get(physical);
+        if (statements == null) {
+            // a new physical connection usually means the pool retired an old one
+            for (Iterator<Connection> it = byConnection.keySet().iterator(); it.hasNext(); ) {
+                if (it.next().isClosed()) it.remove();
+            }
+            statements = new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SqlStatement, PreparedStatement> eldest) {
+                    if (size() <= MAX_STATEMENTS) return false;
+                    try {
+                        eldest.getValue().close();
+                    } catch (SQLException ignored) {
+                        // a closed connection has released its statements already
+                    }
+                    return true;
+                }
+            };
+            byConnection.put(physical, statements);
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,124 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.config.CatalogProperties;
+import com.mhs.api.scheduler.model.Classroom;
+import com.mhs.api.scheduler.model.Course;
+import com.mhs.api.scheduler.model.Semester;
+import com.mhs.api.scheduler.model.Teacher;
+import com.mhs.api.scheduler.model.TimeSlot;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application-wide copy of the reference tables.
+ *
+ * Loaded once at startup and replaced atomically, never patched: readers call {@link #current()}
+ * once and work with that snapshot, so a refresh in the middle of a request cannot hand them a
+ * mix of old and new rows. A background check polls reference_data_version (bumped by triggers
+ * on every change to the tables) and reloads when it moves; {@link #refresh()} forces a reload.
+ *
+ * Each school has its own copy; {@link #current()} and {@link #refresh()} act on the school the
+ * calling thread works for, and the background check visits every local school.
+ */
+@Component
+public class ReferenceCatalog implements InitializingBean, AutoCloseable {
+
+    private static final SqlStatement VERSION = SqlStatement.of("referenceData.version",
+            "SELECT version FROM reference_data_version WHERE id = 1");
+    private static final SqlStatement ALL_TIMESLOTS = SqlStatement.of("timeslots.all",
+            "SELECT " + TimeSlot.COLUMNS + " FROM timeslots ORDER BY id");
+    private static final SqlStatement ALL_ROOMS = SqlStatement.of("classrooms.all",
+            "SELECT " + Classroom.COLUMNS + " FROM classrooms ORDER BY id");
+    private static final SqlStatement ALL_TEACHERS = SqlStatement.of("teachers.all",
+            "SELECT " + Teacher.COLUMNS + " FROM teachers ORDER BY id");
+    private static final SqlStatement ALL_COURSES = SqlStatement.of("courses.all",
+            "SELECT " + Course.COLUMNS + " FROM courses ORDER BY id");
+    private static final SqlStatement ALL_SEMESTERS = SqlStatement.of("semesters.all",
+            "SELECT " + Semester.COLUMNS + " FROM semesters ORDER BY year, order_in_year");
+    // names only, for messages; these two tables have no version triggers and ride along with the others
+    private static final SqlStatement ROOM_TYPE_NAMES = SqlStatement.of("roomTypes.names",
+            "SELECT id, name FROM room_types");
+    private static final SqlStatement SPECIALIZATION_NAMES = SqlStatement.of("specializations.names",
+            "SELECT id, name FROM specializations");
+
+    private final DataService dataService;
+    private final SchoolRegistry schools;
+    private final long checkIntervalSeconds;
+    private final Map<String, ReferenceData> bySchool = new ConcurrentHashMap<>();
+    private ScheduledExecutorService timer;
+
+    public ReferenceCatalog(DataService dataService, SchoolRegistry schools, CatalogProperties properties) {
+        this.dataService = dataService;
+        this.schools = schools;
+        this.checkIntervalSeconds = properties.checkIntervalSeconds();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        schools.forEachLocal(school -> refresh());
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reference-catalog");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::checkForChanges, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public ReferenceData current() {
+        ReferenceData data = bySchool.get(schools.current());
+        return data != null ? data : refresh();
+    }
+
+    /** Reloads every reference table of the current school and swaps the new copy in. */
+    public synchronized ReferenceData refresh() {
+        String school = schools.current();
+        // read the version first: a change made while loading bumps it again and the next check reloads
+        long version = dataService.queryLong(VERSION, 0);
+        ReferenceData loaded = new ReferenceData(version,
+                dataService.list(ALL_TIMESLOTS, new TimeSlot.Mapper()),
+                dataService.list(ALL_ROOMS, new Classroom.Mapper()),
+                dataService.list(ALL_TEACHERS, new Teacher.Mapper()),
+                dataService.list(ALL_COURSES, new Course.Mapper()),
+                dataService.list(ALL_SEMESTERS, new Semester.Mapper()),
+                names(ROOM_TYPE_NAMES),
+                names(SPECIALIZATION_NAMES));
+        bySchool.put(school, loaded);
+        System.out.println("📚 Reference catalog loaded for " + school + " (version " + version + "): " +
+                loaded.timeslots().size() + " timeslots, " + loaded.classrooms().size() + " classrooms, " +
+                loaded.teachers().size() + " teachers, " + loaded.courses().size() + " courses, " +
+                loaded.semesters().size() + " semesters");
+        return loaded;
+    }
+
+    private Map<Integer, String> names(SqlStatement statement) {
+        Map<Integer, String> names = new HashMap<>();
+        for (Map.Entry<Integer, String> e : dataService.list(statement,
+                (rs, i) -> Map.entry(rs.getInt("id"), rs.getString("name")))) {
+            names.put(e.getKey(), e.getValue());
+        }
+        return names;
+    }
+
+    private void checkForChanges() {
+        schools.forEachLocal(school -> {
+            try {
+                ReferenceData data = bySchool.get(school);
+                if (data == null || dataService.queryLong(VERSION, 0) != data.version()) refresh();
+            } catch (RuntimeException e) {
+                System.out.println("⚠️ Reference catalog check failed for " + school + ": " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) timer.shutdownNow();
+    }
+}
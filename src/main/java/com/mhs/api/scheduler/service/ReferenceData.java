@@ -0,0 +1,159 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.model.Classroom;
+import com.mhs.api.scheduler.model.Course;
+import com.mhs.api.scheduler.model.Semester;
+import com.mhs.api.scheduler.model.Teacher;
+import com.mhs.api.scheduler.model.TimeSlot;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * One consistent, read-only copy of the reference tables (timeslots, classrooms, teachers,
+ * courses, semesters, plus room type and specialization names) with the lookups the services need. Instances are never modified; the
+ * catalog replaces the whole object on refresh.
+ */
+public final class ReferenceData {
+
+    private final long version;
+    private final List<TimeSlot> timeslots;
+    private final Map<Integer, TimeSlot> timeslotsById;
+    private final Map<String, List<TimeSlot>> timeslotsByDay;
+    private final List<Classroom> classrooms;
+    private final Map<Integer, Classroom> classroomsById;
+    private final Map<Integer, List<Classroom>> classroomsByRoomType;
+    private final List<Teacher> teachers;
+    private final Map<Integer, Teacher> teachersById;
+    private final Map<Integer, List<Teacher>> teachersBySpecialization;
+    private final List<Course> courses;
+    private final Map<Integer, Course> coursesById;
+    private final List<Semester> semesters;
+    private final Map<Integer, Semester> semestersById;
+    private final Map<String, Semester> semestersByName;
+    private final Map<Integer, String> roomTypeNames;
+    private final Map<Integer, String> specializationNames;
+
+    ReferenceData(long version, List<TimeSlot> timeslots, List<Classroom> classrooms, List<Teacher> teachers,
+                  List<Course> courses, List<Semester> semesters,
+                  Map<Integer, String> roomTypeNames, Map<Integer, String> specializationNames) {
+        this.version = version;
+        this.timeslots = List.copyOf(timeslots);
+        this.timeslotsById = byId(timeslots, TimeSlot::id);
+        this.timeslotsByDay = groupBy(timeslots, TimeSlot::day);
+        this.classrooms = List.copyOf(classrooms);
+        this.classroomsById = byId(classrooms, Classroom::id);
+        this.classroomsByRoomType = groupBy(classrooms, Classroom::roomTypeId);
+        this.teachers = List.copyOf(teachers);
+        this.teachersById = byId(teachers, Teacher::id);
+        this.teachersBySpecialization = groupBy(teachers, Teacher::specializationId);
+        this.courses = List.copyOf(courses);
+        this.coursesById = byId(courses, Course::id);
+        this.semesters = semesters.stream()
+                .sorted(Comparator.comparingInt(Semester::year).thenComparingInt(Semester::orderInYear))
+                .toList();
+        this.semestersById = byId(semesters, Semester::id);
+        // names repeat across years ("Fall", "Spring"); the lowest id wins, as WHERE name = ? did
+        this.semestersByName = Map.copyOf(semesters.stream()
+                .sorted(Comparator.comparingInt(Semester::id))
+                .collect(Collectors.toMap(Semester::name, s -> s, (a, b) -> a)));
+        this.roomTypeNames = Map.copyOf(roomTypeNames);
+        this.specializationNames = Map.copyOf(specializationNames);
+    }
+
+    /** Value of reference_data_version when this copy was read. */
+    public long version() {
+        return version;
+    }
+
+    /** Ordered by id, i.e. by day and start time. */
+    public List<TimeSlot> timeslots() {
+        return timeslots;
+    }
+
+    public TimeSlot timeslot(int id) {
+        return timeslotsById.get(id);
+    }
+
+    /** Days in timetable order, each with its slots in order. */
+    public Map<String, List<TimeSlot>> timeslotsByDay() {
+        return timeslotsByDay;
+    }
+
+    public List<Classroom> classrooms() {
+        return classrooms;
+    }
+
+    public Classroom classroom(int id) {
+        return classroomsById.get(id);
+    }
+
+    public List<Classroom> classroomsOfType(int roomTypeId) {
+        return classroomsByRoomType.getOrDefault(roomTypeId, List.of());
+    }
+
+    public List<Teacher> teachers() {
+        return teachers;
+    }
+
+    public Teacher teacher(int id) {
+        return teachersById.get(id);
+    }
+
+    public List<Teacher> teachersWithSpecialization(int specializationId) {
+        return teachersBySpecialization.getOrDefault(specializationId, List.of());
+    }
+
+    /** Ordered by id. */
+    public List<Course> courses() {
+        return courses;
+    }
+
+    public Course course(int id) {
+        return coursesById.get(id);
+    }
+
+    /** Ordered by year, then order in year. */
+    public List<Semester> semesters() {
+        return semesters;
+    }
+
+    public Optional<Semester> semester(int id) {
+        return Optional.ofNullable(semestersById.get(id));
+    }
+
+    public Optional<Semester> semesterByName(String name) {
+        return Optional.ofNullable(semestersByName.get(name));
+    }
+
+    /** The earliest semester flagged active. */
+    public Optional<Semester> activeSemester() {
+        return semesters.stream().filter(Semester::active).findFirst();
+    }
+
+    /** Display name of a room type, e.g. "gym"; falls back to the id. */
+    public String roomTypeName(int roomTypeId) {
+        return roomTypeNames.getOrDefault(roomTypeId, "room type " + roomTypeId);
+    }
+
+    /** Display name of a teacher specialization, e.g. "Physical_Education"; falls back to the id. */
+    public String specializationName(int specializationId) {
+        return specializationNames.getOrDefault(specializationId, "specialization " + specializationId);
+    }
+
+    private static <T> Map<Integer, T> byId(List<T> rows, Function<T, Integer> id) {
+        return Map.copyOf(rows.stream().collect(Collectors.toMap(id, r -> r)));
+    }
+
+    // keeps first-seen key order and row order, so days and rooms come out as loaded
+    private static <K, T> Map<K, List<T>> groupBy(List<T> rows, Function<T, K> key) {
+        return Collections.unmodifiableMap(rows.stream()
+                .collect(Collectors.groupingBy(key, LinkedHashMap::new, Collectors.toUnmodifiableList())));
+    }
+}
@@ -0,0 +1,43 @@
+package com.mhs.api.scheduler.service;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch mode for CI (maplewood.replay.run-and-exit=true): replays the corpus once the application
+ * has started and exits with 0 when every snapshot matched its baseline, 1 otherwise (see
+ * {@link SolverReplay} for what fails a replay). {@code --update-baseline} also records the
+ * results as the new baseline and always exits with 0.
+ */
+@Component
+@ConditionalOnProperty(prefix = "maplewood.replay", name = "run-and-exit", havingValue = "true")
+public class ReplayRunner implements ApplicationRunner {
+
+    private final SolverReplay replay;
+    private final ConfigurableApplicationContext context;
+
+    public ReplayRunner(SolverReplay replay, ConfigurableApplicationContext context) {
+        this.replay = replay;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Map<String, Object> report = replay.replay(args.containsOption("update-baseline"));
+        boolean passed = Boolean.TRUE.equals(report.get("passed"));
+        System.out.println((passed ? "✅" : "❌") + " Replayed " + report.get("snapshots") + " snapshots from " +
+                report.get("corpus") + ": " + report.get("regressions") + " regressions, " +
+                ((List<?>) report.get("unchecked")).size() + " unchecked, " +
+                ((List<?>) report.get("missing")).size() + " missing");
+        // a new baseline accepts the results, regressions included
+        boolean accepted = passed || Boolean.TRUE.equals(report.get("baseline_updated"));
+        System.exit(SpringApplication.exit(context, () -> accepted ? 0 : 1));
+    }
+}
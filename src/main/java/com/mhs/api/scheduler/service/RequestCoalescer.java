@@ -0,0 +1,176 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.config.CoalescingProperties;
+import com.mhs.api.scheduler.config.CoalescingProperties.GeneratePolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers asking for the same thing share one execution.
+ *
+ * Reads: the first caller for a key runs the work and everyone arriving while it runs gets the
+ * same result (or exception). Generate: runs for one semester of one school go one at a time, so
+ * two clear-and-rebuild cycles never interleave; a caller that finds a run in progress either
+ * shares an identical running/queued one or queues a new one, per
+ * {@link CoalescingProperties#generatePolicy()}. Reschedules wait in the same per-semester line,
+ * since they rewrite the same rows, but only ever share a flight with another reschedule. Every call is counted in coalescing.calls,
+ * tagged with the operation and whether it executed, joined or superseded.
+ */
+@Component
+public class RequestCoalescer {
+
+    private record FlightKey(String operation, String school, Object key) {}
+
+    private record LaneKey(String school, int semesterId) {}
+
+    private static final class Flight {
+        final FlightKey key;
+        Object request;
+        boolean started;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Flight(FlightKey key, Object request) {
+            this.key = key;
+            this.request = request;
+        }
+
+        // a flight only covers callers of the same operation with the same kind of request
+        boolean covers(FlightKey otherKey, Object otherRequest) {
+            return key.equals(otherKey) && request.getClass() == otherRequest.getClass();
+        }
+    }
+
+    private final SchoolRegistry schools;
+    private final MeterRegistry registry;
+    private final boolean coalesceReads;
+    private final GeneratePolicy generatePolicy;
+    private final Map<FlightKey, CompletableFuture<Object>> reads = new ConcurrentHashMap<>();
+    private final Map<LaneKey, Deque<Flight>> lanes = new HashMap<>(); // guarded by itself; head is running
+
+    public RequestCoalescer(SchoolRegistry schools, CoalescingProperties properties, MeterRegistry registry) {
+        this.schools = schools;
+        this.registry = registry;
+        this.coalesceReads = properties.reads();
+        this.generatePolicy = properties.generatePolicy();
+    }
+
+    /** Runs {@code work}, or waits for an identical read (same operation and key) already running. */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String operation, Object key, Supplier<T> work) {
+        if (!coalesceReads) return work.get();
+        FlightKey flightKey = new FlightKey(operation, schools.current(), key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = reads.putIfAbsent(flightKey, mine);
+        if (running != null) {
+            count(operation, "joined");
+            return (T) await(running);
+        }
+        count(operation, "executed");
+        try {
+            T result = work.get();
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            reads.remove(flightKey, mine);
+        }
+    }
+
+    /** {@link #exclusive} for generate. */
+    public <R, T> T generate(int semesterId, R request, Function<R, T> work) {
+        return exclusive("generate", semesterId, request, work);
+    }
+
+    /**
+     * Runs {@code work(request)} once nothing else rewriting the semester is running, or shares
+     * the result of a run of the same operation that will cover this request. Under SUPERSEDE the
+     * caller's request replaces the same operation's one queued behind the running run, so its
+     * result may be for a later request. {@code operation} names the work: callers passing the
+     * same name must pass equivalent work.
+     */
+    @SuppressWarnings("unchecked")
+    public <R, T> T exclusive(String operation, int semesterId, R request, Function<R, T> work) {
+        LaneKey laneKey = new LaneKey(schools.current(), semesterId);
+        FlightKey key = new FlightKey(operation, laneKey.school(), semesterId);
+        Flight mine;
+        Flight previous = null;
+        Deque<Flight> line;
+        boolean owner;
+        synchronized (lanes) {
+            line = lanes.computeIfAbsent(laneKey, k -> new ArrayDeque<>());
+            Flight shared = null;
+            String outcome = "joined";
+            if (generatePolicy == GeneratePolicy.JOIN) {
+                for (Flight f : line) {
+                    if (f.covers(key, request) && f.request.equals(request)) {
+                        shared = f;
+                        break;
+                    }
+                }
+            } else if (line.peekLast() != null && !line.peekLast().started && line.peekLast().covers(key, request)) {
+                shared = line.peekLast();
+                if (!shared.request.equals(request)) outcome = "superseded";
+                shared.request = request;
+            }
+            if (shared != null) {
+                count(operation, outcome);
+                mine = shared;
+                owner = false;
+            } else {
+                count(operation, "executed");
+                previous = line.peekLast();
+                mine = new Flight(key, request);
+                line.addLast(mine);
+                owner = true;
+            }
+        }
+        if (!owner) return (T) await(mine.result);
+
+        if (previous != null) previous.result.handle((r, e) -> null).join(); // its outcome is not ours
+        R started;
+        synchronized (lanes) {
+            mine.started = true;
+            started = (R) mine.request;
+        }
+        try {
+            T result = work.apply(started);
+            mine.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (lanes) {
+                line.remove(mine);
+                if (line.isEmpty()) lanes.remove(laneKey);
+            }
+        }
+    }
+
+    private void count(String operation, String outcome) {
+        registry.counter("coalescing.calls", "operation", operation, "outcome", outcome).increment();
+    }
+
+    // rethrows what the executing caller saw, so joiners map to the same HTTP status
+    private static Object await(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.mhs.api.scheduler.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for generation runs and database calls.
+ *
+ * They cost next to nothing unless a recording has them enabled (jcmd JFR.start, or a generate
+ * request with profile=true, see {@link GenerationRecorder}). Call sites check
+ * {@code shouldCommit()} before filling in fields, so a disabled event is only a begin and an end.
+ */
+public final class SchedulerEvents {
+
+    private SchedulerEvents() {
+    }
+
+    @Name("maplewood.SolverPhase")
+    @Label("Solver Phase")
+    @Category({"Maplewood", "Scheduler"})
+    @Description("One phase of a generate run")
+    @StackTrace(false)
+    public static class SolverPhase extends Event {
+        @Label("Semester")
+        public int semesterId;
+        @Label("Mode")
+        public String mode;
+        @Label("Phase")
+        public String phase;
+        @Label("Items")
+        @Description("Sections, rows or search nodes the phase handled")
+        public long items;
+
+        /** Started at construction; commit with {@link #end(long)}. */
+        public SolverPhase(int semesterId, String mode, String phase) {
+            begin();
+            this.semesterId = semesterId;
+            this.mode = mode;
+            this.phase = phase;
+        }
+
+        public void end(long items) {
+            end();
+            if (shouldCommit()) {
+                this.items = items;
+                commit();
+            }
+        }
+    }
+
+    @Name("maplewood.SectionPlacement")
+    @Label("Section Placement")
+    @Category({"Maplewood", "Scheduler"})
+    @Description("The greedy scheduler placing one section's sessions")
+    @StackTrace(false)
+    public static class SectionPlacement extends Event {
+        @Label("Section")
+        public int sectionId;
+        @Label("Course")
+        public String courseCode;
+        @Label("Sessions")
+        public int sessions;
+        @Label("Room Candidates")
+        public int roomCandidates;
+        @Label("Teacher Candidates")
+        public int teacherCandidates;
+        @Label("Slot Windows Tried")
+        public int windowsTried;
+        @Label("Room/Teacher Pairs Checked")
+        public int pairsChecked;
+        @Label("Placed")
+        public boolean placed;
+    }
+
+    @Name("maplewood.Backjump")
+    @Label("Solver Backjump")
+    @Category({"Maplewood", "Scheduler"})
+    @Description("The exact solver jumping back over more than one level of its search")
+    @StackTrace(false)
+    public static class Backjump extends Event {
+        @Label("From Depth")
+        public int fromDepth;
+        @Label("To Depth")
+        public int toDepth;
+        @Label("Nodes So Far")
+        public long nodes;
+    }
+
+    @Name("maplewood.SqlStatement")
+    @Label("SQL Statement")
+    @Category({"Maplewood", "Database"})
+    @Description("One DataService statement, from binding parameters to the last row read")
+    @StackTrace(false)
+    public static class DbStatement extends Event {
+        @Label("Statement")
+        public String name;
+        @Label("Write")
+        public boolean write;
+        @Label("Rows")
+        @Description("Rows returned, or rows changed by a write")
+        public int rows;
+        @Label("In Transaction")
+        public boolean inTransaction;
+    }
+}
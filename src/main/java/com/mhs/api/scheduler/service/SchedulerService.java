@@ -1,224 +1,598 @@
 package com.mhs.api.scheduler.service;
 
+import com.mhs.api.scheduler.config.SolverProperties;
+import com.mhs.api.scheduler.model.AssignmentView;
+import com.mhs.api.scheduler.model.Classroom;
+import com.mhs.api.scheduler.model.Course;
+import com.mhs.api.scheduler.model.RescheduleRequest;
+import com.mhs.api.scheduler.model.SectionInput;
+import com.mhs.api.scheduler.model.Semester;
+import com.mhs.api.scheduler.model.Teacher;
+import com.mhs.api.scheduler.model.TimeSlot;
+import com.mhs.api.scheduler.utility.Util;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class SchedulerService {
 
+    private static final SqlStatement SECTIONS_FOR_SEMESTER = SqlStatement.of("sections.forSemester",
+            SectionInput.SELECT + "WHERE s.semester_id = ?");
+    private static final SqlStatement INSERT_ASSIGNMENT = SqlStatement.of("assignments.insert",
+            "INSERT OR IGNORE INTO schedule_assignments (section_id,timeslot_id,room_id,teacher_id) VALUES (?,?,?,?)");
+    private static final SqlStatement MARK_SCHEDULED = SqlStatement.of("sections.markScheduled",
+            "UPDATE sections SET status='scheduled', schedule = ?, teacher = ? WHERE id = ?");
+    private static final SqlStatement PREVIEW = SqlStatement.of("assignments.preview",
+            AssignmentView.SELECT + "WHERE s.semester_id = ? ORDER BY sa.section_id, ts.day, ts.start_time LIMIT 50");
+    private static final SqlStatement COUNT_SECTIONS = SqlStatement.of("sections.countForSemester",
+            "SELECT COUNT(*) FROM sections WHERE semester_id = ?");
+    private static final SqlStatement CLEAR_ASSIGNMENTS = SqlStatement.of("assignments.clearSemester",
+            "DELETE FROM schedule_assignments WHERE section_id IN (SELECT id FROM sections WHERE semester_id = ?)");
+    private static final SqlStatement RESET_STATUS = SqlStatement.of("sections.resetStatus",
+            "UPDATE sections SET status='unscheduled', schedule = NULL, teacher = NULL WHERE semester_id = ?");
+    private static final SqlStatement DEMAND_BY_COURSE = SqlStatement.of("history.demandByCourse",
+            "SELECT course_id, COUNT(*) AS cnt FROM student_course_history " +
+                    "WHERE status IN ('requested','planned','enrolled') GROUP BY course_id");
+    private static final SqlStatement SECTION_COUNT_BY_COURSE = SqlStatement.of("sections.countByCourse",
+            "SELECT course_id, COUNT(*) AS cnt FROM sections WHERE semester_id = ? GROUP BY course_id");
+    private static final SqlStatement INSERT_SECTION = SqlStatement.of("sections.insert",
+            "INSERT INTO sections (course_id, semester_id, section_number, capacity, seats_left, hours_per_week, preferred_room_type_id) VALUES (?,?,?,?,?,?,?)");
+    // rooms and teachers are unique per timeslot across all semesters (see the schedule_assignments constraints)
+    private static final SqlStatement ALL_BOOKINGS = SqlStatement.of("assignments.bookings",
+            "SELECT section_id, timeslot_id, room_id, teacher_id FROM schedule_assignments");
+    private static final SqlStatement CLEAR_SECTION_ASSIGNMENTS = SqlStatement.of("assignments.clearSection",
+            "DELETE FROM schedule_assignments WHERE section_id = ?");
+    private static final SqlStatement RESET_SECTION_STATUS = SqlStatement.of("sections.resetSectionStatus",
+            "UPDATE sections SET status='unscheduled', schedule = NULL, teacher = NULL WHERE id = ?");
+    private static final SqlStatement ASSIGNMENT_ROWS = SqlStatement.of("assignments.rows",
+            "SELECT id, section_id, timeslot_id, room_id, teacher_id FROM schedule_assignments");
+    private static final SqlStatement REASSIGN = SqlStatement.of("assignments.reassign",
+            "UPDATE schedule_assignments SET room_id = ?, teacher_id = ? WHERE id = ?");
+    private static final SqlStatement SET_SECTION_TEACHERS = SqlStatement.of("sections.setTeachers",
+            "UPDATE sections SET teacher = ? WHERE id = ?");
+    // slots the students of each listed section spend in the semester's other (non-moving) sections
+    private static final SqlStatement STUDENT_BUSY_SLOTS = SqlStatement.of("studentSchedule.busySlots",
+            "SELECT DISTINCT ss.section_id, sa.timeslot_id FROM student_schedule ss " +
+                    "JOIN student_schedule other ON other.student_id = ss.student_id AND other.section_id <> ss.section_id " +
+                    "JOIN sections os ON os.id = other.section_id AND os.semester_id = ? " +
+                    "JOIN schedule_assignments sa ON sa.section_id = other.section_id " +
+                    "WHERE ss.section_id IN (SELECT value FROM json_each(?)) " +
+                    "AND other.section_id NOT IN (SELECT value FROM json_each(?))");
+    private static final SqlStatement STUDENTS_IN_SECTIONS = SqlStatement.of("studentSchedule.countForSections",
+            "SELECT COUNT(DISTINCT student_id) FROM student_schedule WHERE section_id IN (SELECT value FROM json_each(?))");
+
     private DataService dataService;
+    private final ReferenceCatalog catalog;
+    private final TransactionTemplate transactions;
+    private final SolverProperties solver;
 
-    public SchedulerService(DataService dataService) {
+    public SchedulerService(DataService dataService, ReferenceCatalog catalog,
+                            PlatformTransactionManager transactionManager, SolverProperties solver) {
         this.dataService = dataService;
+        this.catalog = catalog;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.solver = solver;
     }
 
+    /**
+     * Greedy mode: places as many sections as it can and stores them in place of the
+     * semester's current timetable.
+     *
+     * Runs outside the class-level transaction so the solve does not hold the writer
+     * connection; loading and saving each get a short transaction of their own.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Map<String, Object> generate(int semesterId) {
         System.out.println("=== Generating schedule for semester: " + semesterId + " ===");
 
-        // 1) Ensure sections exist based on demand
-        ensureSections(semesterId);
+        ReferenceData ref = catalog.current();
 
-        // 2) Clear previous assignments for these sections
-        clearPreviousAssignments(semesterId);
+        // 1) Ensure sections exist based on demand, then load them
+        SchedulerEvents.SolverPhase phase = new SchedulerEvents.SolverPhase(semesterId, "greedy", "ensure_sections");
+        List<SectionInput> sections = transactions.execute(status -> {
+            ensureSections(semesterId, ref);
+            return dataService.list(SECTIONS_FOR_SEMESTER, new SectionInput.Mapper(), semesterId);
+        });
+        phase.end(0);
+
+        // 2) The slots other semesters already hold; this semester's are about to be replaced
+        phase = new SchedulerEvents.SolverPhase(semesterId, "greedy", "load");
+        List<ExactScheduler.Booking> booked = bookings(sections.stream().map(SectionInput::id).collect(Collectors.toSet()));
+        phase.end(sections.size());
+
+        phase = new SchedulerEvents.SolverPhase(semesterId, "greedy", "place");
+        GreedyScheduler.Result placed = new GreedyScheduler(ref, sections, booked).place();
+        Map<Integer, List<Assignment>> bySection = new HashMap<>();
+        for (ExactScheduler.Session s : placed.sessions()) {
+            bySection.computeIfAbsent(s.sectionId(), k -> new ArrayList<>())
+                    .add(new Assignment(s.sectionId(), s.timeslotIds(), s.roomId(), s.teacherId()));
+        }
+        List<Integer> assignedSections = placed.assignedSections();
+        List<Integer> unscheduledSections = placed.unscheduledSections();
+        phase.end(sections.size());
+
+        // 3) Clear previous assignments and store the new ones together
+        phase = new SchedulerEvents.SolverPhase(semesterId, "greedy", "save");
+        transactions.executeWithoutResult(status -> {
+            clearPreviousAssignments(semesterId);
+            for (int secId : assignedSections) saveSection(secId, bySection.get(secId), ref);
+        });
+        phase.end(assignedSections.size());
 
-        // 3) Load resources
-        List<Map<String, Object>> timeslots = dataService.query("SELECT * FROM timeslots ORDER BY id");
-        Map<String, List<Map<String, Object>>> timeslotsByDay = timeslots.stream()
-                .collect(Collectors.groupingBy(t -> (String) t.get("day"), LinkedHashMap::new, Collectors.toList()));
+        // debug preview - first 50 rows for this semester
+        phase = new SchedulerEvents.SolverPhase(semesterId, "greedy", "preview");
+        List<AssignmentView> preview = dataService.list(PREVIEW, new AssignmentView.Mapper(), semesterId);
+        phase.end(preview.size());
 
-        List<Map<String, Object>> rooms = dataService.query("SELECT id, name, room_type_id, capacity FROM classrooms");
-        Map<Integer, List<Map<String, Object>>> roomsByType = rooms.stream()
-                .collect(Collectors.groupingBy(r -> (Integer) r.getOrDefault("room_type_id", -1)));
+        System.out.println("🔍 Schedule preview (up to 50 rows):");
+        for (AssignmentView r : preview) {
+            System.out.printf("   Section %s (%s) - %s | %s %s-%s%n",
+                    r.sectionId(), r.courseCode(), r.teacherName(), r.day(), r.startTime(), r.endTime());
+        }
 
-        List<Map<String, Object>> teachers = dataService.query("SELECT id, first_name, last_name, specialization_id FROM teachers");
-        Map<Integer, List<Map<String, Object>>> teachersBySpec = teachers.stream()
-                .collect(Collectors.groupingBy(t -> (Integer) t.getOrDefault("specialization_id", -1)));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", "greedy");
+        result.put("assigned_count", assignedSections.size());
+        result.put("total_sections", sections.size());
+        result.put("assigned_sections", assignedSections);
+        result.put("unscheduled_sections", unscheduledSections);
+        return result;
+    }
 
-        List<Map<String, Object>> sections = dataService.query(
-                "SELECT s.*, c.hours_per_week as course_hours, c.specialization_id as course_spec, c.code as course_code, c.name as course_name " +
-                        "FROM sections s JOIN courses c ON s.course_id = c.id WHERE s.semester_id = ?", semesterId);
 
-        // occupancy maps
-        Map<Integer, Set<Integer>> roomOccupied = new HashMap<>();    // timeslotId -> roomIds
-        Map<Integer, Set<Integer>> teacherOccupied = new HashMap<>(); // timeslotId -> teacherIds
-        Map<Integer, Map<String, Integer>> teacherDailyHours = new HashMap<>(); // teacherId -> (day->hours)
+    /**
+     * Exact mode: finds a complete timetable and stores it, or explains why none exists. With
+     * course codes, only those courses' sections are rescheduled; either way the search works
+     * around every assignment it is not replacing, other semesters' included. Nothing is changed
+     * unless every target section is placed.
+     *
+     * Runs outside the class-level transaction so the search does not hold the writer
+     * connection; loading and saving each get a short transaction of their own.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> generateExact(int semesterId, List<String> courseCodes, Long timeLimitMs) {
+        ReferenceData ref = catalog.current();
+        long limit = Math.min(timeLimitMs == null || timeLimitMs <= 0 ? solver.timeLimitMs() : timeLimitMs,
+                solver.maxTimeLimitMs());
+        Set<Integer> courseIds = courseIds(courseCodes, ref);
+
+        SchedulerEvents.SolverPhase phase = new SchedulerEvents.SolverPhase(semesterId, "exact", "load");
+        List<SectionInput> sections = transactions.execute(status -> {
+            ensureSections(semesterId, ref);
+            return dataService.list(SECTIONS_FOR_SEMESTER, new SectionInput.Mapper(), semesterId);
+        });
+        List<SectionInput> target = sections.stream()
+                .filter(s -> courseIds == null || courseIds.contains(s.courseId()))
+                .toList();
+        Set<Integer> targetIds = target.stream().map(SectionInput::id).collect(Collectors.toSet());
+
+        // everything not being rescheduled keeps its slots, other semesters included
+        List<ExactScheduler.Booking> booked = bookings(targetIds);
+        phase.end(target.size());
+
+        System.out.println("=== Exact scheduling for semester " + semesterId + ": " + target.size() + " sections, " +
+                booked.size() + " booked slots, limit " + limit + " ms ===");
+        phase = new SchedulerEvents.SolverPhase(semesterId, "exact", "search");
+        ExactScheduler.Result solved = new ExactScheduler(ref, target, booked).solve(limit);
+        phase.end(solved.nodes());
+        boolean scheduled = solved.status() == ExactScheduler.Status.SCHEDULED;
+
+        if (scheduled) {
+            phase = new SchedulerEvents.SolverPhase(semesterId, "exact", "save");
+            Map<Integer, List<Assignment>> bySection = new LinkedHashMap<>();
+            for (ExactScheduler.Session s : solved.sessions()) {
+                bySection.computeIfAbsent(s.sectionId(), k -> new ArrayList<>())
+                        .add(new Assignment(s.sectionId(), s.timeslotIds(), s.roomId(), s.teacherId()));
+            }
+            transactions.executeWithoutResult(status -> {
+                if (courseIds == null) {
+                    clearPreviousAssignments(semesterId);
+                } else {
+                    for (int secId : targetIds) {
+                        dataService.execute(CLEAR_SECTION_ASSIGNMENTS, secId);
+                        dataService.execute(RESET_SECTION_STATUS, secId);
+                    }
+                }
+                bySection.forEach((secId, assignments) -> saveSection(secId, assignments, ref));
+            });
+            phase.end(solved.sessions().size());
+        }
+        System.out.println((scheduled ? "✅" : "⚠️") + " Exact scheduling " + solved.status().name().toLowerCase() +
+                " after " + solved.nodes() + " nodes, " + solved.backjumps() + " backjumps, " + solved.elapsedMillis() + " ms" +
+                (solved.explanation() == null ? "" : ": " + solved.explanation().summary()));
 
-        List<Integer> assignedSections = new ArrayList<>();
-        List<Integer> unscheduledSections = new ArrayList<>();
+        List<Integer> ids = target.stream().map(SectionInput::id).toList();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("mode", "exact");
+        result.put("status", solved.status().name().toLowerCase());
+        result.put("assigned_count", scheduled ? ids.size() : 0);
+        result.put("total_sections", ids.size());
+        result.put("assigned_sections", scheduled ? ids : List.of());
+        result.put("unscheduled_sections", scheduled ? List.of() : ids);
+        if (solved.explanation() != null) result.put("explanation", explanation(solved.explanation(), ref));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodes", solved.nodes());
+        stats.put("backjumps", solved.backjumps());
+        stats.put("elapsed_ms", solved.elapsedMillis());
+        stats.put("time_limit_ms", limit);
+        result.put("solver", stats);
+        return result;
+    }
 
-        // sort by hardness (special room + more hours)
-        sections.sort((a, b) -> {
-            int sa = Optional.ofNullable((Integer) a.get("course_hours")).orElse(3);
-            int sb = Optional.ofNullable((Integer) b.get("course_hours")).orElse(3);
-            if (a.get("preferred_room_type_id") != null) sa += 3;
-            if (b.get("preferred_room_type_id") != null) sb += 3;
-            return Integer.compare(sb, sa);
-        });
+    /**
+     * The solver input for a semester as generate sees it once the semester is cleared: its
+     * sections and the slots every other semester holds, with the reference rows they refer to.
+     * Only reads; sections that generate would add for new demand are not created here.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SolverSnapshot snapshot(int semesterId, String school) {
+        ReferenceData ref = catalog.current();
+        Semester semester = ref.semester(semesterId)
+                .orElseThrow(() -> new IllegalArgumentException("Semester not found: " + semesterId));
+        List<SectionInput> sections = dataService.list(SECTIONS_FOR_SEMESTER, new SectionInput.Mapper(), semesterId);
+        List<ExactScheduler.Booking> booked = bookings(sections.stream().map(SectionInput::id).collect(Collectors.toSet()));
+
+        Map<Integer, String> roomTypes = new TreeMap<>();
+        ref.classrooms().forEach(c -> roomTypes.put(c.roomTypeId(), ref.roomTypeName(c.roomTypeId())));
+        sections.forEach(sec -> roomTypes.put(sec.preferredRoomTypeId(), ref.roomTypeName(sec.preferredRoomTypeId())));
+        Map<Integer, String> specializations = new TreeMap<>();
+        ref.teachers().forEach(t -> specializations.put(t.specializationId(), ref.specializationName(t.specializationId())));
+        sections.forEach(sec -> specializations.put(sec.courseSpecializationId(), ref.specializationName(sec.courseSpecializationId())));
+        List<Course> courses = sections.stream().map(SectionInput::courseId).distinct().sorted()
+                .map(ref::course).filter(Objects::nonNull).toList();
+
+        return new SolverSnapshot(SolverSnapshot.FORMAT, school, semesterId, Instant.now().toString(), ref.version(),
+                ref.timeslots(), ref.classrooms(), ref.teachers(), courses, List.of(semester),
+                roomTypes, specializations, sections, booked);
+    }
 
-        lastSectionsById.clear();
-        for (Map<String, Object> sec : sections) {
-            lastSectionsById.put((Integer) sec.get("id"), sec);
-            int secId = (Integer) sec.get("id");
-            int hours = Optional.ofNullable((Integer) sec.get("course_hours")).orElse(3);
-            int preferredType = sec.get("preferred_room_type_id") == null ? -1 : (Integer) sec.get("preferred_room_type_id");
-            int courseSpec = sec.get("course_spec") == null ? -1 : (Integer) sec.get("course_spec");
-
-            List<Map<String, Object>> roomCandidates = roomsByType.getOrDefault(preferredType, rooms);
-            List<Map<String, Object>> teacherCandidates = teachersBySpec.getOrDefault(courseSpec, teachers);
-
-            // split hours into sessions (prefer 2h when possible)
-            int rem = hours;
-            List<Integer> sessionLens = new ArrayList<>();
-            while (rem > 0) {
-                if (rem >= 2) { sessionLens.add(2); rem -= 2; }
-                else { sessionLens.add(1); rem -= 1; }
+    /**
+     * Repairs a semester's timetable after teachers or rooms drop out or sections are added,
+     * without regenerating it.
+     *
+     * Sessions that lost their teacher or room keep their timeslots and get a free replacement
+     * (one teacher and one room per section, preferring ones it already uses), so students see
+     * no time change. Only sections that cannot be fixed that way, and added sections, are
+     * re-solved with the exact search around everything else, which stays pinned; they first try
+     * to avoid the slots their enrolled students spend in other sections. Sections the search
+     * cannot place are left as they were and reported as unresolved.
+     *
+     * Unavailability applies to this call only; a later generate uses every teacher and room again.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<String, Object> reschedule(int semesterId, RescheduleRequest change) {
+        long started = System.nanoTime();
+        ReferenceData ref = catalog.current();
+        ref.semester(semesterId).orElseThrow(() -> new IllegalArgumentException("Semester not found: " + semesterId));
+        if (change.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to reschedule: give unavailableTeachers, closedRooms or addedSections");
+        }
+        for (int id : change.unavailableTeachers()) {
+            if (ref.teacher(id) == null) throw new IllegalArgumentException("Teacher not found: " + id);
+        }
+        for (int id : change.closedRooms()) {
+            if (ref.classroom(id) == null) throw new IllegalArgumentException("Classroom not found: " + id);
+        }
+        Set<Integer> goneTeachers = new HashSet<>(change.unavailableTeachers());
+        Set<Integer> goneRooms = new HashSet<>(change.closedRooms());
+        long limit = Math.min(change.timeLimitMs() == null || change.timeLimitMs() <= 0
+                ? solver.rescheduleTimeLimitMs() : change.timeLimitMs(), solver.maxTimeLimitMs());
+
+        SchedulerEvents.SolverPhase phase = new SchedulerEvents.SolverPhase(semesterId, "incremental", "load");
+        Map<Integer, SectionInput> sections = new LinkedHashMap<>();
+        for (SectionInput sec : dataService.list(SECTIONS_FOR_SEMESTER, new SectionInput.Mapper(), semesterId)) {
+            sections.put(sec.id(), sec);
+        }
+        for (int id : change.addedSections()) {
+            if (!sections.containsKey(id)) throw new IllegalArgumentException("Section " + id + " is not in semester " + semesterId);
+        }
+        List<BookedSlot> rows = dataService.list(ASSIGNMENT_ROWS, (rs, i) ->
+                new BookedSlot(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5)));
+        Occupancy busy = new Occupancy(ref);
+        Map<Integer, List<BookedSlot>> bySection = new LinkedHashMap<>();
+        for (BookedSlot r : rows) {
+            busy.hold(r);
+            if (sections.containsKey(r.sectionId())) bySection.computeIfAbsent(r.sectionId(), k -> new ArrayList<>()).add(r);
+        }
+        phase.end(rows.size());
+
+        // 1) in place: same slots, replacement teacher and/or room
+        phase = new SchedulerEvents.SolverPhase(semesterId, "incremental", "reassign");
+        Set<Integer> toMove = new LinkedHashSet<>(change.addedSections());
+        Map<Integer, BookedSlot> replaced = new LinkedHashMap<>(); // assignment id -> new row
+        List<Map<String, Object>> reassigned = new ArrayList<>();
+        for (Map.Entry<Integer, List<BookedSlot>> e : bySection.entrySet()) {
+            if (toMove.contains(e.getKey())) continue;
+            List<BookedSlot> own = e.getValue();
+            if (own.stream().noneMatch(r -> goneTeachers.contains(r.teacherId()) || goneRooms.contains(r.roomId()))) continue;
+            SectionInput sec = sections.get(e.getKey());
+            List<BookedSlot> fixed = replaceInPlace(sec, own, goneTeachers, goneRooms, busy, ref);
+            if (fixed == null) {
+                toMove.add(sec.id());
+                continue;
             }
-
-            boolean allPlaced = true;
-            List<Assignment> assignments = new ArrayList<>();
-
-            // schedule each session
-            for (int len : sessionLens) {
-                boolean placed = false;
-                for (var dayEntry : timeslotsByDay.entrySet()) {
-                    String day = dayEntry.getKey();
-                    List<Map<String, Object>> daySlots = dayEntry.getValue();
-                    for (int i = 0; i < daySlots.size(); i++) {
-                        if (len == 2 && i + 1 >= daySlots.size()) continue;
-                        // ensure we do not schedule across lunch — our timeslots avoid lunch already
-                        List<Integer> candidateSlots = (len == 1)
-                                ? List.of((Integer) daySlots.get(i).get("id"))
-                                : List.of((Integer) daySlots.get(i).get("id"), (Integer) daySlots.get(i + 1).get("id"));
-
-                        // check room + teacher availability for this candidate
-                        outer:
-                        for (Map<String, Object> room : roomCandidates) {
-                            int roomId = (Integer) room.get("id");
-                            int cap = Optional.ofNullable((Integer) room.get("capacity")).orElse(10);
-                            if (cap < Optional.ofNullable((Integer) sec.get("capacity")).orElse(10)) continue;
-
-                            // room conflict?
-                            boolean roomConflict = candidateSlots.stream().anyMatch(ts -> roomOccupied.getOrDefault(ts, Set.of()).contains(roomId));
-                            if (roomConflict) continue;
-
-                            for (Map<String, Object> teacher : teacherCandidates) {
-                                int tid = (Integer) teacher.get("id");
-                                boolean teacherConflict = candidateSlots.stream().anyMatch(ts -> teacherOccupied.getOrDefault(ts, Set.of()).contains(tid));
-                                if (teacherConflict) continue;
-
-                                int curr = teacherDailyHours.getOrDefault(tid, new HashMap<>()).getOrDefault(day, 0);
-                                if (curr + len > 4) continue;
-
-                                // PASS: assign
-                                Assignment a = new Assignment(secId, candidateSlots, roomId, tid);
-                                assignments.add(a);
-                                // mark occupancy
-                                candidateSlots.forEach(ts -> {
-                                    roomOccupied.computeIfAbsent(ts, k -> new HashSet<>()).add(roomId);
-                                    teacherOccupied.computeIfAbsent(ts, k -> new HashSet<>()).add(tid);
-                                });
-                                teacherDailyHours.computeIfAbsent(tid, k -> new HashMap<>()).put(day, curr + len);
-
-                                placed = true;
-                                break outer;
-                            }
-                        }
-                        if (placed) break;
-                    }
-                    if (placed) break;
-                } // end day search
-
-                if (!placed) { allPlaced = false; break; }
-            } // end sessions for section
-
-            if (allPlaced) {
-                // persist safely using INSERT OR IGNORE (idempotent)
-                for (Assignment a : assignments) {
-                    for (int ts : a.timeslotIds) {
-                        dataService.update("INSERT OR IGNORE INTO schedule_assignments (section_id,timeslot_id,room_id,teacher_id) VALUES (?,?,?,?)",
-                                a.sectionId, ts, a.roomId, a.teacherId);
-                    }
+            boolean teacherChanged = false;
+            boolean roomChanged = false;
+            for (int i = 0; i < own.size(); i++) {
+                BookedSlot before = own.get(i);
+                BookedSlot after = fixed.get(i);
+                if (before.equals(after)) continue;
+                teacherChanged |= before.teacherId() != after.teacherId();
+                roomChanged |= before.roomId() != after.roomId();
+                busy.hold(after);
+                replaced.put(after.id(), after);
+            }
+            e.setValue(fixed);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("section_id", sec.id());
+            m.put("course", sec.courseCode());
+            m.put("section", sec.sectionNumber());
+            m.put("teacher_changed", teacherChanged);
+            m.put("room_changed", roomChanged);
+            reassigned.add(m);
+        }
+        phase.end(reassigned.size());
+
+        // 2) re-solve what could not stay put, around everything else; when that is impossible,
+        //    once more without the sections the explanation names
+        ExactScheduler.Result solved = null;
+        ExactScheduler.Explanation why = null;
+        Moves placed = null;
+        List<Integer> movedIds = List.of();
+        if (!toMove.isEmpty()) {
+            phase = new SchedulerEvents.SolverPhase(semesterId, "incremental", "search");
+            String moving = Util.jsonArray(toMove);
+            Map<Integer, List<Integer>> studentSlots = new HashMap<>();
+            dataService.forEach(STUDENT_BUSY_SLOTS, rs -> studentSlots.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>()).add(rs.getInt(2)),
+                    semesterId, moving, moving);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limit);
+            Set<Integer> attempt = new LinkedHashSet<>(toMove);
+            long nodes = 0;
+            for (int round = 0; round < 2 && !attempt.isEmpty(); round++) {
+                List<ExactScheduler.Booking> booked = new ArrayList<>();
+                for (BookedSlot r : rows) {
+                    if (attempt.contains(r.sectionId())) continue;
+                    BookedSlot current = replaced.getOrDefault(r.id(), r);
+                    booked.add(new ExactScheduler.Booking(current.timeslotId(), current.roomId(), current.teacherId()));
                 }
-                dataService.update("UPDATE sections SET status='scheduled' WHERE id = ?", secId);
-                assignedSections.add(secId);
-            } else {
-                unscheduledSections.add(secId);
+                long left = Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), limit / 4);
+                Moves m = placeAround(ref, attempt.stream().map(sections::get).toList(), booked, goneRooms, goneTeachers,
+                        studentSlots, left);
+                solved = m.result();
+                nodes += solved.nodes();
+                if (solved.status() == ExactScheduler.Status.SCHEDULED) {
+                    placed = m;
+                    movedIds = List.copyOf(attempt);
+                    break;
+                }
+                if (round > 0 || solved.explanation() == null) break;
+                why = solved.explanation();
+                why.sections().forEach(sec -> attempt.remove(sec.id()));
             }
-        } // end all sections
-
-        // debug preview - first 20 rows for this semester
-        List<Map<String, Object>> preview = dataService.query(
-                "SELECT sa.section_id, s.section_number, c.code as course_code, c.name as course_name, t.first_name || ' ' || t.last_name as teacher_name, " +
-                        "r.name as room_name, ts.day, ts.start_time, ts.end_time " +
-                        "FROM schedule_assignments sa " +
-                        "JOIN sections s ON s.id = sa.section_id " +
-                        "JOIN courses c ON c.id = s.course_id " +
-                        "JOIN teachers t ON t.id = sa.teacher_id " +
-                        "JOIN classrooms r ON r.id = sa.room_id " +
-                        "JOIN timeslots ts ON ts.id = sa.timeslot_id " +
-                        "WHERE s.semester_id = ? ORDER BY sa.section_id, ts.day, ts.start_time LIMIT 50",
-                semesterId);
-
-        System.out.println("🔍 Schedule preview (up to 50 rows):");
-        for (Map<String, Object> r : preview) {
-            System.out.printf("   Section %s (%s) - %s | %s %s-%s%n",
-                    r.get("section_id"), r.get("course_code"), r.get("teacher_name"), r.get("day"), r.get("start_time"), r.get("end_time"));
+            if (why == null && solved != null) why = solved.explanation();
+            phase.end(nodes);
         }
+        List<Integer> movedSections = movedIds;
+        List<Integer> unresolvedIds = toMove.stream().filter(id -> !movedSections.contains(id)).toList();
+
+        phase = new SchedulerEvents.SolverPhase(semesterId, "incremental", "save");
+        Moves search = placed;
+        transactions.executeWithoutResult(status -> {
+            for (BookedSlot r : replaced.values()) dataService.execute(REASSIGN, r.roomId(), r.teacherId(), r.id());
+            for (Map<String, Object> m : reassigned) {
+                int secId = (Integer) m.get("section_id");
+                String names = bySection.get(secId).stream()
+                        .sorted(Comparator.comparingInt(BookedSlot::timeslotId))
+                        .map(r -> ref.teacher(r.teacherId()).fullName())
+                        .distinct()
+                        .collect(Collectors.joining(", "));
+                dataService.execute(SET_SECTION_TEACHERS, names, secId);
+            }
+            if (search != null) {
+                Map<Integer, List<Assignment>> sessions = new LinkedHashMap<>();
+                for (ExactScheduler.Session s : search.result().sessions()) {
+                    sessions.computeIfAbsent(s.sectionId(), k -> new ArrayList<>())
+                            .add(new Assignment(s.sectionId(), s.timeslotIds(), s.roomId(), s.teacherId()));
+                }
+                for (int secId : movedSections) {
+                    dataService.execute(CLEAR_SECTION_ASSIGNMENTS, secId);
+                    dataService.execute(RESET_SECTION_STATUS, secId);
+                }
+                sessions.forEach((secId, assignments) -> saveSection(secId, assignments, ref));
+            }
+        });
+        phase.end(replaced.size() + movedIds.size());
+
+        List<Integer> reassignedIds = reassigned.stream().map(m -> (Integer) m.get("section_id")).toList();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        System.out.println((unresolvedIds.isEmpty() ? "✅" : "⚠️") + " Rescheduled semester " + semesterId + ": " +
+                reassignedIds.size() + " sections reassigned in place, " + movedIds.size() + " moved, " +
+                unresolvedIds.size() + " unresolved, " + elapsed + " ms");
 
         Map<String, Object> result = new LinkedHashMap<>();
-        result.put("assigned_count", assignedSections.size());
-        result.put("total_sections", sections.size());
-        result.put("assigned_sections", assignedSections);
-        result.put("unscheduled_sections", unscheduledSections);
+        result.put("mode", "incremental");
+        result.put("status", unresolvedIds.isEmpty() ? "rescheduled" : "partial");
+        result.put("reassigned", reassigned);
+        result.put("moved_sections", movedIds);
+        result.put("unresolved_sections", unresolvedIds);
+        result.put("students_with_new_times", movedIds.isEmpty() ? 0
+                : dataService.queryInt(STUDENTS_IN_SECTIONS, 0, Util.jsonArray(movedIds)));
+        result.put("students_with_new_teacher_or_room", reassignedIds.isEmpty() ? 0
+                : dataService.queryInt(STUDENTS_IN_SECTIONS, 0, Util.jsonArray(reassignedIds)));
+        if (placed != null) result.put("student_clashes_possible", placed.studentClashesPossible());
+        if (why != null && !unresolvedIds.isEmpty()) result.put("explanation", explanation(why, ref));
+        if (solved != null) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("status", solved.status().name().toLowerCase());
+            stats.put("nodes", solved.nodes());
+            stats.put("backjumps", solved.backjumps());
+            stats.put("elapsed_ms", solved.elapsedMillis());
+            stats.put("time_limit_ms", limit);
+            result.put("solver", stats);
+        }
+        result.put("elapsed_ms", elapsed);
         return result;
     }
 
+    private record Moves(ExactScheduler.Result result, boolean studentClashesPossible) {}
+
+    // exact search for the sections, first keeping them out of their students' other slots
+    private static Moves placeAround(ReferenceData ref, List<SectionInput> targets, List<ExactScheduler.Booking> booked,
+                                     Set<Integer> goneRooms, Set<Integer> goneTeachers,
+                                     Map<Integer, List<Integer>> studentSlots, long limit) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limit);
+        ExactScheduler exact = new ExactScheduler(ref, targets, booked, goneRooms, goneTeachers);
+        studentSlots.forEach(exact::avoid);
+        ExactScheduler.Result solved = exact.solve(limit);
+        if (solved.status() == ExactScheduler.Status.SCHEDULED || studentSlots.isEmpty()) return new Moves(solved, false);
+
+        // keeping every student clash-free is impossible or too slow; place the sections anyway
+        long left = Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), limit / 4);
+        ExactScheduler.Result relaxed = new ExactScheduler(ref, targets, booked, goneRooms, goneTeachers).solve(left);
+        return relaxed.status() == ExactScheduler.Status.SCHEDULED ? new Moves(relaxed, true) : new Moves(solved, false);
+    }
+
+    /**
+     * The section's rows with every unavailable teacher and closed room replaced, keeping the
+     * slots; null when no single free teacher (or room) can take all the affected slots.
+     */
+    private static List<BookedSlot> replaceInPlace(SectionInput sec, List<BookedSlot> own, Set<Integer> goneTeachers,
+                                                   Set<Integer> goneRooms, Occupancy busy, ReferenceData ref) {
+        List<BookedSlot> needTeacher = own.stream().filter(r -> goneTeachers.contains(r.teacherId())).toList();
+        List<BookedSlot> needRoom = own.stream().filter(r -> goneRooms.contains(r.roomId())).toList();
+        int teacher = -1;
+        int room = -1;
+        if (!needTeacher.isEmpty()) {
+            List<Teacher> candidates = ref.teachersWithSpecialization(sec.courseSpecializationId());
+            if (candidates.isEmpty()) candidates = ref.teachers();
+            teacher = prefer(candidates.stream().map(Teacher::id), own.stream().map(BookedSlot::teacherId), goneTeachers)
+                    .filter(t -> busy.teacherFree(t, needTeacher))
+                    .findFirst().orElse(-1);
+            if (teacher < 0) return null;
+        }
+        if (!needRoom.isEmpty()) {
+            List<Classroom> candidates = ref.classroomsOfType(sec.preferredRoomTypeId());
+            if (candidates.isEmpty()) candidates = ref.classrooms();
+            room = prefer(candidates.stream().filter(r -> r.capacity() >= sec.capacity()).map(Classroom::id),
+                    own.stream().map(BookedSlot::roomId), goneRooms)
+                    .filter(r -> busy.roomFree(r, needRoom))
+                    .findFirst().orElse(-1);
+            if (room < 0) return null;
+        }
+        List<BookedSlot> out = new ArrayList<>(own.size());
+        for (BookedSlot r : own) {
+            out.add(new BookedSlot(r.id(), r.sectionId(), r.timeslotId(),
+                    goneRooms.contains(r.roomId()) ? room : r.roomId(),
+                    goneTeachers.contains(r.teacherId()) ? teacher : r.teacherId()));
+        }
+        return out;
+    }
+
+    // candidates the section already uses first, then the rest in catalog order; never the unavailable ones
+    private static Stream<Integer> prefer(Stream<Integer> candidates, Stream<Integer> used, Set<Integer> gone) {
+        List<Integer> all = candidates.filter(id -> !gone.contains(id)).toList();
+        Set<Integer> mine = used.filter(all::contains).collect(Collectors.toCollection(LinkedHashSet::new));
+        return Stream.concat(mine.stream(), all.stream().filter(id -> !mine.contains(id)));
+    }
+
+    private List<ExactScheduler.Booking> bookings(Set<Integer> exceptSections) {
+        List<ExactScheduler.Booking> booked = new ArrayList<>();
+        for (int[] r : dataService.list(ALL_BOOKINGS, (rs, i) -> new int[]{
+                rs.getInt("section_id"), rs.getInt("timeslot_id"), rs.getInt("room_id"), rs.getInt("teacher_id")})) {
+            if (!exceptSections.contains(r[0])) booked.add(new ExactScheduler.Booking(r[1], r[2], r[3]));
+        }
+        return booked;
+    }
+
+    // null means every course
+    private static Set<Integer> courseIds(List<String> codes, ReferenceData ref) {
+        if (codes == null || codes.isEmpty()) return null;
+        Map<String, Integer> byCode = ref.courses().stream().collect(Collectors.toMap(c -> c.code().toUpperCase(), Course::id));
+        Set<Integer> ids = new HashSet<>();
+        for (String code : codes) {
+            Integer id = byCode.get(code.trim().toUpperCase());
+            if (id == null) throw new IllegalArgumentException("Unknown course: " + code);
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static Map<String, Object> explanation(ExactScheduler.Explanation e, ReferenceData ref) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("summary", e.summary());
+        out.put("minimal", e.minimal());
+        out.put("sections", e.sections().stream().map(s -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("section_id", s.id());
+            m.put("course", s.courseCode());
+            m.put("section", s.sectionNumber());
+            m.put("hours", s.courseHours());
+            return m;
+        }).toList());
+        out.put("rooms", e.roomIds().stream().map(id -> ref.classroom(id).name()).toList());
+        out.put("teachers", e.teacherIds().stream().map(id -> ref.teacher(id).fullName()).toList());
+        return out;
+    }
+
+    private void saveSection(int secId, List<Assignment> assignments, ReferenceData ref) {
+        // persist safely using INSERT OR IGNORE (idempotent)
+        for (Assignment a : assignments) {
+            for (int ts : a.timeslotIds) {
+                dataService.execute(INSERT_ASSIGNMENT, a.sectionId, ts, a.roomId, a.teacherId);
+            }
+        }
+        // denormalized summary for the student-facing listings
+        String schedule = assignments.stream()
+                .map(a -> {
+                    TimeSlot first = ref.timeslot(a.timeslotIds.get(0));
+                    TimeSlot last = ref.timeslot(a.timeslotIds.get(a.timeslotIds.size() - 1));
+                    return first.day() + " " + first.start() + "-" + last.end();
+                })
+                .collect(Collectors.joining(", "));
+        String teacherNames = assignments.stream()
+                .map(a -> ref.teacher(a.teacherId).fullName())
+                .distinct()
+                .collect(Collectors.joining(", "));
+        dataService.execute(MARK_SCHEDULED, schedule, teacherNames, secId);
+    }
 
     private void clearPreviousAssignments(int semesterId) {
-            // Fetch all section IDs for the given semester
-            List<Map<String, Object>> secs = dataService.query(
-                    "SELECT id FROM sections WHERE semester_id = ?", semesterId);
+            int sectionCount = dataService.queryInt(COUNT_SECTIONS, 0, semesterId);
 
-            if (secs.isEmpty()) {
+            if (sectionCount == 0) {
                 System.out.println("🟡 No existing sections found for semester ID " + semesterId);
                 return;
             }
 
-            // Build placeholders (?, ?, ?, ...) for deletion
-            String placeholders = secs.stream().map(s -> "?").collect(Collectors.joining(","));
-            Object[] ids = secs.stream().map(s -> s.get("id")).toArray();
-
-            // Log which section IDs will be cleared
-            System.out.println("🧹 Clearing old schedule assignments for sections: " +
-                    Arrays.toString(ids));
+            System.out.println("🧹 Clearing old schedule assignments for " + sectionCount + " sections");
 
             // Delete existing schedule assignments
-            int deletedRows = dataService.update(
-                    String.format("DELETE FROM schedule_assignments WHERE section_id IN (%s)", placeholders),
-                    ids
-            );
+            int deletedRows = dataService.execute(CLEAR_ASSIGNMENTS, semesterId);
 
             // Reset section statuses
-            dataService.update("UPDATE sections SET status='unscheduled' WHERE semester_id = ?", semesterId);
+            dataService.execute(RESET_STATUS, semesterId);
 
             // Log results
             System.out.println("✅ Cleared " + deletedRows + " old schedule assignment rows.");
     }
 
-    private void ensureSections(int semesterId) {
+    private void ensureSections(int semesterId, ReferenceData ref) {
         // Get student demand per course if available
         // We'll try to use student_course_history rows with status 'planned' or 'requested' or 'enrolled'
         Map<Integer, Integer> demandByCourse = new HashMap<>();
         try {
-            List<Map<String, Object>> demandRows = dataService.query(
-                    "SELECT course_id, COUNT(*) as cnt FROM student_course_history " +
-                            "WHERE status IN ('requested','planned','enrolled') GROUP BY course_id");
-            for (Map<String, Object> r : demandRows) {
-                demandByCourse.put((Integer) r.get("course_id"), ((Number) r.get("cnt")).intValue());
+            for (int[] r : dataService.list(DEMAND_BY_COURSE, (rs, i) -> new int[]{rs.getInt("course_id"), rs.getInt("cnt")})) {
+                demandByCourse.put(r[0], r[1]);
             }
         } catch (Exception ex) {
             // table may not exist or no rows — we'll fallback to heuristic
@@ -226,19 +600,19 @@ public class SchedulerService {
         }
 
         // Find existing course_ids already having sections for this semester
-        List<Map<String, Object>> existing = dataService.query("SELECT course_id, COUNT(*) as cnt FROM sections WHERE semester_id = ? GROUP BY course_id", semesterId);
-        Set<Integer> existingCourseIds = existing.stream().map(r -> (Integer) r.get("course_id")).collect(Collectors.toSet());
-        Map<Integer, Integer> existingSectionCount = existing.stream().collect(Collectors.toMap(
-                r -> (Integer) r.get("course_id"),
-                r -> ((Number) r.get("cnt")).intValue()
-        ));
+        Map<Integer, Integer> existingSectionCount = new HashMap<>();
+        for (int[] r : dataService.list(SECTION_COUNT_BY_COURSE, (rs, i) -> new int[]{rs.getInt("course_id"), rs.getInt("cnt")}, semesterId)) {
+            existingSectionCount.put(r[0], r[1]);
+        }
 
-        // Query courses that should be offered this semester (semester_order not null OR all courses if you prefer)
-        List<Map<String, Object>> courses = dataService.query("SELECT * FROM courses WHERE semester_order IS NOT NULL OR semester_order = ''");
+        // Courses that should be offered this semester (semester_order set)
+        List<Course> courses = ref.courses().stream()
+                .filter(c -> c.semesterOrder() != 0)
+                .toList();
 
         final int ROOM_CAPACITY = 10; // as per constraints
-        for (Map<String, Object> c : courses) {
-            int cid = (Integer) c.get("id");
+        for (Course c : courses) {
+            int cid = c.id();
             int demand = demandByCourse.getOrDefault(cid, 0);
 
             // If no demand data, estimate default demand: use grade-level population if available
@@ -254,251 +628,56 @@ public class SchedulerService {
 
             for (int i = 0; i < toCreate; i++) {
                 // insert a new section
-                int hours = Optional.ofNullable((Integer) c.get("hours_per_week")).orElse(3);
-                dataService.insertAndReturnKey(
-                        "INSERT INTO sections (course_id, semester_id, section_number, capacity, hours_per_week, preferred_room_type_id) VALUES (?,?,?,?,?,?)",
-                        cid, semesterId, existingSections + i + 1, ROOM_CAPACITY, hours, c.get("specialization_id")
-                );
+                dataService.insert(INSERT_SECTION,
+                        cid, semesterId, existingSections + i + 1, ROOM_CAPACITY, ROOM_CAPACITY, c.hoursPerWeek(), c.specializationId());
             }
         }
     }
 
+    /** One schedule_assignments row. */
+    private record BookedSlot(int id, int sectionId, int timeslotId, int roomId, int teacherId) {}
 
-    /**
-     * Attempt a small local repair/backtrack:
-     * - For the provided section (sec) and required session length (len), try to free a candidate by swapping.
-     * - This function mutates roomOccupied, teacherOccupied and teacherDailyHours when successful,
-     *   and appends created Assignment(s) into 'assignments' list.
-     *
-     * Returns true if it managed to place the session (and updated 'assignments' accordingly).
-     *
-     * This is a shallow recursive repair with limited depth to avoid exponential blowup.
-     */
-    private boolean tryLocalRepair(Map<String, Object> sec, int len,
-                                   Map<String, List<Integer>> timeslotIdsByDay,
-                                   Map<Integer, List<Map<String, Object>>> roomsByType,
-                                   Map<Integer, List<Map<String, Object>>> teachersBySpec,
-                                   Map<Integer, Set<Integer>> roomOccupied,
-                                   Map<Integer, Set<Integer>> teacherOccupied,
-                                   Map<Integer, Map<String, Integer>> teacherDailyHours,
-                                   List<Assignment> currentAssignments) {
-        // max recursive depth
-        final int MAX_DEPTH = 2;
-        // try each day and candidate contiguous slot(s) similar to greedy
-        int preferredType = sec.get("preferred_room_type_id") == null ? -1 : (Integer) sec.get("preferred_room_type_id");
-        int courseSpec = sec.get("course_spec") == null ? -1 : (Integer) sec.get("course_spec");
-        List<Map<String, Object>> roomCandidates = roomsByType.getOrDefault(preferredType, Collections.emptyList());
-        List<Map<String, Object>> teacherCandidates = teachersBySpec.getOrDefault(courseSpec, Collections.emptyList());
-        if (roomCandidates.isEmpty()) roomCandidates = roomsByType.values().stream().flatMap(List::stream).collect(Collectors.toList());
-        if (teacherCandidates.isEmpty()) teacherCandidates = teachersBySpec.values().stream().flatMap(List::stream).collect(Collectors.toList());
-
-        // Build quick mapping of timeslot -> existing assignments (in-memory) from currentAssignments
-        Map<Integer, List<Assignment>> assignedByTimeslot = new HashMap<>();
-        for (Assignment a : currentAssignments) {
-            for (int ts : a.timeslotIds) {
-                assignedByTimeslot.computeIfAbsent(ts, k -> new ArrayList<>()).add(a);
-            }
-        }
+    /** Which rooms and teachers are taken per timeslot, and teachers' hours per day, across all semesters. */
+    private static final class Occupancy {
+        private final ReferenceData ref;
+        private final Set<Long> rooms = new HashSet<>();
+        private final Set<Long> teachers = new HashSet<>();
+        private final Map<Integer, Map<String, Integer>> teacherDailyHours = new HashMap<>();
 
-        // Helper recursive attempt
-        List<Map<String, Object>> finalRoomCandidates = roomCandidates;
-        List<Map<String, Object>> finalTeacherCandidates = teacherCandidates;
-        class RepairAttempt {
-            boolean attempt(List<Integer> candidate, int depth) {
-                // Try to find a room + teacher pair that is free (naive)
-                for (Map<String, Object> room : finalRoomCandidates) {
-                    int roomId = (Integer) room.get("id");
-                    boolean roomConflict = candidate.stream().anyMatch(ts -> roomOccupied.getOrDefault(ts, Set.of()).contains(roomId));
-                    if (roomConflict) {
-                        // find assignments blocking the room
-                        List<Assignment> blockers = candidate.stream()
-                                .flatMap(ts -> assignedByTimeslot.getOrDefault(ts, Collections.emptyList()).stream())
-                                .filter(a -> a.roomId == roomId)
-                                .collect(Collectors.toList());
-                        // try to displace blockers
-                        for (Assignment block : blockers) {
-                            if (depth >= MAX_DEPTH) continue;
-                            if (attemptDisplace(block, depth + 1)) {
-                                // after displacement, room should be free for candidate
-                                // update occupancy for room
-                                for (int ts : candidate) roomOccupied.computeIfAbsent(ts, k->new HashSet<>()).remove(roomId);
-                                // continue to teacher checks below
-                            } else {
-                                // cannot displace blocker; try next room
-                                roomConflict = true;
-                                break;
-                            }
-                        }
-                        // re-evaluate conflict
-                        roomConflict = candidate.stream().anyMatch(ts -> roomOccupied.getOrDefault(ts, Set.of()).contains(roomId));
-                        if (roomConflict) continue;
-                    }
-
-                    // Now try teachers
-                    for (Map<String, Object> teacher : finalTeacherCandidates) {
-                        int tid = (Integer) teacher.get("id");
-                        boolean teacherConflict = candidate.stream().anyMatch(ts -> teacherOccupied.getOrDefault(ts, Set.of()).contains(tid));
-                        if (teacherConflict) {
-                            // try to displace teacher's blockers
-                            List<Assignment> tblockers = candidate.stream()
-                                    .flatMap(ts -> assignedByTimeslot.getOrDefault(ts, Collections.emptyList()).stream())
-                                    .filter(a -> a.teacherId == tid)
-                                    .collect(Collectors.toList());
-                            boolean allDisplaced = true;
-                            for (Assignment tblock : tblockers) {
-                                if (depth >= MAX_DEPTH || !attemptDisplace(tblock, depth + 1)) {
-                                    allDisplaced = false;
-                                    break;
-                                }
-                            }
-                            if (!allDisplaced) continue;
-                            // teacher cleared
-                        }
-
-                        // check teacher daily hours constraint
-                        // we need day name for this candidate; we assume candidate slots share same day in this scheduler design
-                        // find day from first timeslot id using timeslotIdsByDay map
-                        String day = findDayForTimeslot(candidate.get(0), timeslotIdsByDay);
-                        int current = teacherDailyHours.getOrDefault(tid, new HashMap<>()).getOrDefault(day, 0);
-                        if (current + candidate.size() > 4) continue;
-
-                        // PASS: create assignment (mutate in-memory structures)
-                        Assignment newAssign = new Assignment((Integer) sec.get("id"), candidate, roomId, tid);
-                        currentAssignments.add(newAssign);
-                        for (int ts : candidate) {
-                            roomOccupied.computeIfAbsent(ts, k-> new HashSet<>()).add(roomId);
-                            teacherOccupied.computeIfAbsent(ts, k-> new HashSet<>()).add(tid);
-                        }
-                        teacherDailyHours.computeIfAbsent(tid, k-> new HashMap<>()).put(day, current + candidate.size());
-                        // update assignedByTimeslot
-                        for (int ts : candidate) assignedByTimeslot.computeIfAbsent(ts, k-> new ArrayList<>()).add(newAssign);
-                        return true;
-                    } // end teacher loop
-                } // end room loop
-                return false;
-            }
-
-            // attempt to displace a blocking assignment by finding alternative slots for it recursively
-            boolean attemptDisplace(Assignment block, int depth) {
-                // remove block temporarily from in-memory occupancy
-                for (int ts : block.timeslotIds) {
-                    roomOccupied.getOrDefault(ts, new HashSet<>()).remove(block.roomId);
-                    teacherOccupied.getOrDefault(ts, new HashSet<>()).remove(block.teacherId);
-                    // also remove from assignedByTimeslot
-                    assignedByTimeslot.getOrDefault(ts, new ArrayList<>()).remove(block);
-                }
-                // try to find another place for block.sectionId
-                Map<String, Object> blockedSection = findSectionById(block.sectionId);
-                if (blockedSection == null) {
-                    // cannot find section, rollback removal
-                    for (int ts : block.timeslotIds) {
-                        roomOccupied.computeIfAbsent(ts, k-> new HashSet<>()).add(block.roomId);
-                        teacherOccupied.computeIfAbsent(ts, k-> new HashSet<>()).add(block.teacherId);
-                        assignedByTimeslot.computeIfAbsent(ts, k-> new ArrayList<>()).add(block);
-                    }
-                    return false;
-                }
-                // attempt to place block elsewhere (simple greedy search similar to top-level but depth aware)
-                boolean placed = attemptRelocateSection(blockedSection, block, depth);
-                if (!placed) {
-                    // rollback: restore original occupancy/assignment
-                    for (int ts : block.timeslotIds) {
-                        roomOccupied.computeIfAbsent(ts, k-> new HashSet<>()).add(block.roomId);
-                        teacherOccupied.computeIfAbsent(ts, k-> new HashSet<>()).add(block.teacherId);
-                        assignedByTimeslot.computeIfAbsent(ts, k-> new ArrayList<>()).add(block);
-                    }
-                    return false;
-                } else {
-                    // block relocated - remove original block from currentAssignments
-                    currentAssignments.remove(block);
-                    return true;
-                }
-            }
+        Occupancy(ReferenceData ref) {
+            this.ref = ref;
+        }
 
-            // attempt to relocate the blocked section somewhere else (shallow greedy)
-            boolean attemptRelocateSection(Map<String, Object> blockedSection, Assignment originalBlock, int depth) {
-                int secId = (Integer) blockedSection.get("id");
-                int hours = Optional.ofNullable((Integer) blockedSection.get("course_hours")).orElse(3);
-
-                // create session lengths for that section; we will try to place one session equal to original block length
-                int len = originalBlock.timeslotIds.size();
-
-                // candidate rooms and teachers for this section
-                int prefType = blockedSection.get("preferred_room_type_id") == null ? -1 : (Integer) blockedSection.get("preferred_room_type_id");
-                int courseSpec = blockedSection.get("course_spec") == null ? -1 : (Integer) blockedSection.get("course_spec");
-                List<Map<String, Object>> rCandidates = roomsByType.getOrDefault(prefType, Collections.emptyList());
-                if (rCandidates.isEmpty()) rCandidates = roomsByType.values().stream().flatMap(List::stream).collect(Collectors.toList());
-                List<Map<String, Object>> tCandidates = teachersBySpec.getOrDefault(courseSpec, Collections.emptyList());
-                if (tCandidates.isEmpty()) tCandidates = teachersBySpec.values().stream().flatMap(List::stream).collect(Collectors.toList());
-
-                for (var entry : timeslotIdsByDay.entrySet()) {
-                    String day = entry.getKey();
-                    List<Integer> slotIds = entry.getValue();
-                    for (int i = 0; i < slotIds.size(); i++) {
-                        if (len == 2 && i + 1 >= slotIds.size()) continue;
-                        List<Integer> candidate = (len == 1) ? List.of(slotIds.get(i)) : List.of(slotIds.get(i), slotIds.get(i+1));
-
-                        for (Map<String, Object> room : rCandidates) {
-                            int roomId = (Integer) room.get("id");
-                            if (candidate.stream().anyMatch(ts -> roomOccupied.getOrDefault(ts, Set.of()).contains(roomId))) continue;
-                            for (Map<String, Object> teacher : tCandidates) {
-                                int tid = (Integer) teacher.get("id");
-                                if (candidate.stream().anyMatch(ts -> teacherOccupied.getOrDefault(ts, Set.of()).contains(tid))) continue;
-                                int curr = teacherDailyHours.getOrDefault(tid, new HashMap<>()).getOrDefault(day, 0);
-                                if (curr + candidate.size() > 4) continue;
-
-                                // assign relocated block
-                                Assignment newBlock = new Assignment(secId, candidate, roomId, tid);
-                                currentAssignments.add(newBlock);
-                                for (int ts : candidate) {
-                                    roomOccupied.computeIfAbsent(ts, k-> new HashSet<>()).add(roomId);
-                                    teacherOccupied.computeIfAbsent(ts, k-> new HashSet<>()).add(tid);
-                                    assignedByTimeslot.computeIfAbsent(ts, k-> new ArrayList<>()).add(newBlock);
-                                }
-                                teacherDailyHours.computeIfAbsent(tid, k-> new HashMap<>()).put(day, curr + candidate.size());
-                                return true;
-                            }
-                        }
-                    }
-                }
-                return false;
+        void hold(BookedSlot r) {
+            rooms.add(key(r.timeslotId(), r.roomId()));
+            if (teachers.add(key(r.timeslotId(), r.teacherId()))) {
+                TimeSlot ts = ref.timeslot(r.timeslotId());
+                if (ts != null) teacherDailyHours.computeIfAbsent(r.teacherId(), k -> new HashMap<>()).merge(ts.day(), 1, Integer::sum);
             }
-        } // end RepairAttempt
-
-        RepairAttempt ra = new RepairAttempt();
+        }
 
-        // try all candidate slots day-by-day
-        for (var entry : timeslotIdsByDay.entrySet()) {
-            String day = entry.getKey();
-            List<Integer> ids = entry.getValue();
-            for (int i=0;i<ids.size();i++) {
-                if (len==2 && i+1>=ids.size()) continue;
-                List<Integer> candidate = len==1 ? List.of(ids.get(i)) : List.of(ids.get(i), ids.get(i+1));
+        boolean roomFree(int roomId, List<BookedSlot> slots) {
+            return slots.stream().noneMatch(r -> rooms.contains(key(r.timeslotId(), roomId)));
+        }
 
-                // quick feasibility: we will attempt to free candidate if blocked
-                boolean ok = ra.attempt(candidate, 0);
-                if (ok) return true;
+        // free in every slot, and within the daily limit once they are added
+        boolean teacherFree(int teacherId, List<BookedSlot> slots) {
+            Map<String, Integer> added = new HashMap<>();
+            for (BookedSlot r : slots) {
+                if (teachers.contains(key(r.timeslotId(), teacherId))) return false;
+                TimeSlot ts = ref.timeslot(r.timeslotId());
+                if (ts != null) added.merge(ts.day(), 1, Integer::sum);
             }
+            Map<String, Integer> hours = teacherDailyHours.getOrDefault(teacherId, Map.of());
+            return added.entrySet().stream().allMatch(e ->
+                    hours.getOrDefault(e.getKey(), 0) + e.getValue() <= ExactScheduler.MAX_TEACHER_HOURS_PER_DAY);
         }
-        return false;
-    }
 
-    // helper small util to find day name for a timeslot id
-    private String findDayForTimeslot(int timeslotId, Map<String, List<Integer>> timeslotIdsByDay) {
-        for (var e : timeslotIdsByDay.entrySet()) {
-            if (e.getValue().contains(timeslotId)) return e.getKey();
+        private static long key(int timeslotId, int id) {
+            return ((long) timeslotId << 32) | (id & 0xffffffffL);
         }
-        return "Unknown";
     }
 
-    // helper to find section map by id - assumes 'sections' variable exists at scope of generate()
-// We will add a private field to hold lastSections for lookup; modify generate() to set this before loop.
-    private Map<Integer, Map<String, Object>> lastSectionsById = new HashMap<>();
-    private Map<String, Object> findSectionById(int id) {
-        return lastSectionsById.get(id);
-    }
-
-
     private static class Assignment {
         int sectionId;
         List<Integer> timeslotIds;
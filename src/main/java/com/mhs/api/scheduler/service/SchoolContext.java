@@ -0,0 +1,37 @@
+package com.mhs.api.scheduler.service;
+
+/**
+ * The school the current thread is working for.
+ *
+ * Set per request by the school routing filter and around background work by whoever loops over
+ * the schools; read by the routing data sources, the writers and every per-school cache. Unset
+ * means the node's home school (see {@link SchoolRegistry#current()}).
+ */
+public final class SchoolContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private SchoolContext() {
+    }
+
+    /** The school set on this thread, or null. */
+    public static String get() {
+        return CURRENT.get();
+    }
+
+    /** Switches the thread to {@code school} until the returned scope is closed. */
+    public static Scope enter(String school) {
+        String previous = CURRENT.get();
+        CURRENT.set(school);
+        return () -> {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        };
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,100 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.config.SchoolProperties;
+import com.mhs.api.scheduler.config.SqliteProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Which schools exist, which node owns each, and which of them this instance serves.
+ *
+ * Built once from {@link SchoolProperties}; without shards it describes the single school on
+ * spring.datasource.url, so a one-school deployment behaves exactly as before.
+ */
+@Component
+public class SchoolRegistry {
+
+    public record School(String key, String url, String node) {}
+
+    private final String node;
+    private final String defaultSchool;
+    private final String home;
+    private final Map<String, School> schools = new LinkedHashMap<>();
+    private final List<School> local;
+    private final Map<String, String> nodeUrls;
+
+    public SchoolRegistry(SchoolProperties properties, DataSourceProperties dataSource, SqliteProperties sqlite) {
+        this.node = properties.node();
+        this.defaultSchool = properties.defaultSchool();
+        this.nodeUrls = Map.copyOf(properties.nodes());
+        if (properties.shards().isEmpty()) {
+            schools.put(defaultSchool, new School(defaultSchool, dataSource.getUrl(), node));
+        } else {
+            properties.shards().entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> schools.put(e.getKey(), new School(e.getKey(), e.getValue().url(),
+                            e.getValue().node() == null ? node : e.getValue().node())));
+        }
+        this.local = schools.values().stream().filter(s -> s.node().equals(node)).toList();
+        if (local.isEmpty()) {
+            throw new IllegalStateException("No schools are assigned to node " + node);
+        }
+        for (School s : local) {
+            if (s.url() == null) throw new IllegalStateException("School " + s.key() + " has no url");
+        }
+        // memory and single mode keep exactly one database behind one connection setup
+        if (local.size() > 1 && !"split".equals(sqlite.mode())) {
+            throw new IllegalStateException("Serving several schools from one node needs maplewood.sqlite.mode=split");
+        }
+        this.home = isLocal(defaultSchool) ? defaultSchool : local.get(0).key();
+        System.out.println("🏫 Node " + node + " serves " + local.stream().map(School::key).toList() +
+                " of " + schools.size() + " school(s)");
+    }
+
+    public Optional<School> school(String key) {
+        return Optional.ofNullable(schools.get(key));
+    }
+
+    public boolean isLocal(String key) {
+        School s = schools.get(key);
+        return s != null && s.node().equals(node);
+    }
+
+    /** Schools this instance opens, in key order. */
+    public List<School> localSchools() {
+        return local;
+    }
+
+    /** The school requests without a school key are for; may belong to another node. */
+    public String defaultSchool() {
+        return defaultSchool;
+    }
+
+    /** The school background work and unscoped calls fall back to: the default school if local, else the first local one. */
+    public String home() {
+        return home;
+    }
+
+    /** The school the current thread works for. */
+    public String current() {
+        String school = SchoolContext.get();
+        return school != null ? school : home;
+    }
+
+    /** Base URL of another node, if configured. */
+    public Optional<String> nodeUrl(String node) {
+        return Optional.ofNullable(nodeUrls.get(node));
+    }
+
+    /** Runs {@code work} once per local school with the thread switched to that school. */
+    public void forEachLocal(Consumer<String> work) {
+        for (School s : local) {
+            try (SchoolContext.Scope ignored = SchoolContext.enter(s.key())) {
+                work.accept(s.key());
+            }
+        }
+    }
+}
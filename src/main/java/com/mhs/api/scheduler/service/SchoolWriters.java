@@ -0,0 +1,31 @@
+package com.mhs.api.scheduler.service;
+
+import java.util.Map;
+
+/**
+ * The group-commit writer of every local school; each school's writes queue and commit on their
+ * own thread and file, so one busy school does not hold up another.
+ */
+public final class SchoolWriters implements AutoCloseable {
+
+    private final SchoolRegistry schools;
+    private final Map<String, GroupCommitWriter> writers;
+
+    public SchoolWriters(SchoolRegistry schools, Map<String, GroupCommitWriter> writers) {
+        this.schools = schools;
+        this.writers = Map.copyOf(writers);
+    }
+
+    /** Writer of the school the current thread works for. */
+    public GroupCommitWriter current() {
+        String school = schools.current();
+        GroupCommitWriter writer = writers.get(school);
+        if (writer == null) throw new IllegalStateException("School " + school + " is not served by this node");
+        return writer;
+    }
+
+    @Override
+    public void close() {
+        writers.values().forEach(GroupCommitWriter::close);
+    }
+}
@@ -0,0 +1,309 @@
+package com.mhs.api.scheduler.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mhs.api.scheduler.config.ReplayProperties;
+import com.mhs.api.scheduler.model.TimeSlot;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A corpus of frozen solver inputs and a runner that re-solves them, so a solver change can be
+ * measured against the last accepted numbers instead of eyeballed on whatever the live tables
+ * hold that day.
+ *
+ * {@link #capture} writes a semester's {@link SolverSnapshot} into maplewood.replay.corpus-directory.
+ * {@link #replay} solves every snapshot there with both the greedy pass and the exact search,
+ * warmup runs first, and records the assigned percentage, the objective (see {@link #objective}),
+ * and the lowest wall time and bytes allocated of the measured runs: scheduling noise, GC and
+ * code the JIT has not optimized yet only ever add to either. Each result is compared
+ * with baseline.json in the same directory: fewer sections placed, a worse objective, or time
+ * or allocations beyond the configured tolerances count as regressions. A replay also fails when
+ * the corpus is empty, when a snapshot has no baseline yet ("new") or its file changed since
+ * ("stale"), and when the baseline lists a snapshot that is gone ("missing"): any of those means
+ * something went unchecked. Updating the baseline accepts them. Wall times are only compared when
+ * the baseline was recorded on the same kind of machine (architecture, processors, JVM version);
+ * the other checks apply everywhere, so the committed corpus in replay/ is useful on any host.
+ */
+@Component
+public class SolverReplay {
+
+    private static final String BASELINE = "baseline.json";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    /** One solver on one snapshot; wall time and allocations are the lowest of the measured runs. */
+    public record Measurement(String status, double assignedPct, int objective, double wallMs, long allocatedBytes) {}
+
+    /** What baseline.json keeps per snapshot: the file's digest, where it was measured, and each solver's measurement. */
+    public record BaselineEntry(String digest, String machine, Map<String, Measurement> solvers) {}
+
+    private record Run(String status, int assigned, List<ExactScheduler.Session> sessions) {}
+
+    private final ReplayProperties properties;
+    private final SchedulerService schedulerService;
+    private final SchoolRegistry schools;
+    private final ObjectMapper objectMapper;
+    private final com.sun.management.ThreadMXBean threads;
+
+    public SolverReplay(ReplayProperties properties, SchedulerService schedulerService, SchoolRegistry schools,
+                        ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.schedulerService = schedulerService;
+        this.schools = schools;
+        this.objectMapper = objectMapper;
+        // HotSpot's bean counts bytes allocated per thread; elsewhere allocations are reported as -1
+        this.threads = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled() ? bean : null;
+    }
+
+    /** Writes the semester's current solver input to the corpus; {@code name} defaults to school-semester-id. */
+    public Path capture(int semesterId, String name) {
+        String file = name == null || name.isBlank() ? schools.current() + "-semester-" + semesterId : name.trim();
+        if (!NAME.matcher(file).matches() || file.replaceFirst("\\.json$", "").equals("baseline")) {
+            throw new IllegalArgumentException("Invalid snapshot name: " + name);
+        }
+        SolverSnapshot snapshot = schedulerService.snapshot(semesterId, schools.current());
+        try {
+            Path dir = Files.createDirectories(Path.of(properties.corpusDirectory()));
+            Path path = dir.resolve(file.endsWith(".json") ? file : file + ".json");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), snapshot);
+            System.out.println("📸 Solver snapshot of semester " + semesterId + " (" + snapshot.sections().size() +
+                    " sections, " + snapshot.booked().size() + " booked slots) written to " + path);
+            return path;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write solver snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    /** Replays the whole corpus and compares with the baseline, which is replaced afterwards when asked to. */
+    public Map<String, Object> replay(boolean updateBaseline) {
+        // on a platform thread of its own: request threads may be virtual, which have no allocation counter
+        FutureTask<Map<String, Object>> task = new FutureTask<>(() -> replayCorpus(updateBaseline));
+        Thread.ofPlatform().name("solver-replay").start(task);
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new IllegalStateException("Replay failed: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Replay interrupted", e);
+        }
+    }
+
+    private Map<String, Object> replayCorpus(boolean updateBaseline) {
+        Path dir = Path.of(properties.corpusDirectory());
+        Map<String, BaselineEntry> baseline = readBaseline(dir.resolve(BASELINE));
+        Map<String, BaselineEntry> measured = new TreeMap<>();
+        List<Map<String, Object>> results = new ArrayList<>();
+        int regressed = 0;
+        List<String> unchecked = new ArrayList<>();
+        String machine = machine();
+
+        for (Path file : snapshotFiles(dir)) {
+            String name = file.getFileName().toString().replaceFirst("\\.json$", "");
+            byte[] bytes;
+            SolverSnapshot snapshot;
+            try {
+                bytes = Files.readAllBytes(file);
+                snapshot = objectMapper.readValue(bytes, SolverSnapshot.class);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read solver snapshot " + file + ": " + e.getMessage(), e);
+            }
+            String digest = digest(bytes);
+            BaselineEntry base = baseline.get(name);
+            boolean stale = base != null && !base.digest().equals(digest);
+            boolean sameMachine = base != null && machine.equals(base.machine());
+            ReferenceData ref = snapshot.reference();
+
+            Map<String, Measurement> solvers = new LinkedHashMap<>();
+            for (String solver : List.of("greedy", "exact")) {
+                Measurement now = measure(solver, snapshot, ref);
+                solvers.put(solver, now);
+                Measurement before = base == null || stale ? null : base.solvers().get(solver);
+                List<String> regressions = before == null ? List.of() : regressions(now, before, sameMachine);
+                if (!regressions.isEmpty()) regressed++;
+
+                String comparison = before != null ? (regressions.isEmpty() ? "ok" : "regressed") : stale ? "stale" : "new";
+                if (before == null) unchecked.add(name + " [" + solver + "]: " + comparison);
+                System.out.println((before != null && regressions.isEmpty() ? "✅" : "❌") + " Replay " + name + " [" + solver + "]: " +
+                        now.status() + ", " + now.assignedPct() + "% assigned, objective " + now.objective() + ", " +
+                        now.wallMs() + " ms, " + now.allocatedBytes() + " bytes (" + comparison + ")" +
+                        (regressions.isEmpty() ? "" : ": " + String.join("; ", regressions)) +
+                        (before != null && !sameMachine ? " [wall time not compared, baseline from " + base.machine() + "]" : ""));
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("snapshot", name);
+                row.put("solver", solver);
+                row.put("semester_id", snapshot.semesterId());
+                row.put("sections", snapshot.sections().size());
+                row.put("status", now.status());
+                row.put("assigned_pct", now.assignedPct());
+                row.put("objective", now.objective());
+                row.put("wall_ms", now.wallMs());
+                row.put("allocated_bytes", now.allocatedBytes());
+                row.put("comparison", comparison);
+                row.put("wall_time_compared", before != null && sameMachine);
+                if (before != null) row.put("baseline", before);
+                row.put("regressions", regressions);
+                results.add(row);
+            }
+            measured.put(name, new BaselineEntry(digest, machine, solvers));
+        }
+
+        List<String> missing = baseline.keySet().stream().filter(name -> !measured.containsKey(name)).toList();
+        for (String name : missing) System.out.println("❌ Replay " + name + ": in the baseline but its snapshot is missing");
+        if (measured.isEmpty()) System.out.println("❌ No solver snapshots in " + dir.toAbsolutePath());
+
+        if (updateBaseline) writeBaseline(dir.resolve(BASELINE), measured);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("corpus", dir.toAbsolutePath().toString());
+        out.put("snapshots", measured.size());
+        out.put("passed", !measured.isEmpty() && regressed == 0 && unchecked.isEmpty() && missing.isEmpty());
+        out.put("regressions", regressed);
+        out.put("unchecked", unchecked);
+        out.put("missing", missing);
+        out.put("baseline_updated", updateBaseline);
+        out.put("warmup_runs", properties.warmupRuns());
+        out.put("measured_runs", properties.measuredRuns());
+        out.put("results", results);
+        return out;
+    }
+
+    private Measurement measure(String solver, SolverSnapshot snapshot, ReferenceData ref) {
+        int runs = properties.warmupRuns() + properties.measuredRuns();
+        double[] wall = new double[properties.measuredRuns()];
+        long[] allocated = new long[properties.measuredRuns()];
+        Run last = null;
+        for (int i = 0; i < runs; i++) {
+            long bytesBefore = threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            last = solve(solver, snapshot, ref);
+            long nanos = System.nanoTime() - start;
+            long bytes = threads == null ? -1 : threads.getCurrentThreadAllocatedBytes() - bytesBefore;
+            int k = i - properties.warmupRuns();
+            if (k < 0) continue;
+            wall[k] = nanos / 1_000_000.0;
+            allocated[k] = bytes;
+        }
+        Arrays.sort(wall);
+        Arrays.sort(allocated);
+        int total = snapshot.sections().size();
+        double assignedPct = total == 0 ? 100.0 : Math.round(last.assigned() * 1000.0 / total) / 10.0;
+        return new Measurement(last.status(), assignedPct, objective(last.sessions(), ref),
+                Math.round(wall[0] * 10) / 10.0, allocated[0]);
+    }
+
+    private Run solve(String solver, SolverSnapshot snapshot, ReferenceData ref) {
+        if (solver.equals("greedy")) {
+            GreedyScheduler.Result r = new GreedyScheduler(ref, snapshot.sections(), snapshot.booked()).place();
+            return new Run(r.unscheduledSections().isEmpty() ? "scheduled" : "partial", r.assignedSections().size(), r.sessions());
+        }
+        ExactScheduler.Result r = new ExactScheduler(ref, snapshot.sections(), snapshot.booked()).solve(properties.exactTimeLimitMs());
+        // counted from what was placed, like greedy, rather than inferred from the status
+        int assigned = (int) r.sessions().stream().mapToInt(ExactScheduler.Session::sectionId).distinct().count();
+        return new Run(r.status().name().toLowerCase(), assigned, r.sessions());
+    }
+
+    /**
+     * Soft-constraint penalty of a timetable, lower is better, weighted as the exact search
+     * orders its values: 4 per extra session on a day the section already meets, 2 per extra
+     * teacher and 1 per extra room a section uses.
+     */
+    static int objective(List<ExactScheduler.Session> sessions, ReferenceData ref) {
+        Map<Integer, List<ExactScheduler.Session>> bySection = new HashMap<>();
+        for (ExactScheduler.Session s : sessions) bySection.computeIfAbsent(s.sectionId(), k -> new ArrayList<>()).add(s);
+        int penalty = 0;
+        for (List<ExactScheduler.Session> own : bySection.values()) {
+            Set<String> days = new HashSet<>();
+            Set<Integer> teachers = new HashSet<>();
+            Set<Integer> rooms = new HashSet<>();
+            for (ExactScheduler.Session s : own) {
+                TimeSlot slot = ref.timeslot(s.timeslotIds().get(0));
+                if (slot != null && !days.add(slot.day())) penalty += 4;
+                teachers.add(s.teacherId());
+                rooms.add(s.roomId());
+            }
+            penalty += 2 * (teachers.size() - 1) + (rooms.size() - 1);
+        }
+        return penalty;
+    }
+
+    private List<String> regressions(Measurement now, Measurement base, boolean compareWall) {
+        List<String> out = new ArrayList<>();
+        if (now.assignedPct() < base.assignedPct() - properties.assignedTolerancePct()) {
+            out.add("assigned " + base.assignedPct() + "% -> " + now.assignedPct() + "%");
+        }
+        // placing more sections may cost objective; only a worse timetable for the same or less is a regression
+        if (now.assignedPct() <= base.assignedPct()
+                && now.objective() > base.objective() * (1 + properties.objectiveTolerancePct() / 100)) {
+            out.add("objective " + base.objective() + " -> " + now.objective());
+        }
+        if (compareWall && now.wallMs() > base.wallMs() * (1 + properties.speedTolerancePct() / 100)
+                && now.wallMs() - base.wallMs() > properties.speedSlackMs()) {
+            out.add("wall time " + base.wallMs() + " ms -> " + now.wallMs() + " ms");
+        }
+        if (now.allocatedBytes() >= 0 && base.allocatedBytes() >= 0
+                && now.allocatedBytes() > base.allocatedBytes() * (1 + properties.allocationTolerancePct() / 100)) {
+            out.add("allocations " + base.allocatedBytes() + " -> " + now.allocatedBytes() + " bytes");
+        }
+        return out;
+    }
+
+    private static List<Path> snapshotFiles(Path dir) {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".json"))
+                    .filter(f -> !f.getFileName().toString().equals(BASELINE))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not list solver snapshots in " + dir + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Map<String, BaselineEntry> readBaseline(Path path) {
+        if (!Files.exists(path)) return Map.of();
+        try {
+            return objectMapper.readValue(path.toFile(),
+                    objectMapper.getTypeFactory().constructMapType(TreeMap.class, String.class, BaselineEntry.class));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read replay baseline " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void writeBaseline(Path path, Map<String, BaselineEntry> entries) {
+        try {
+            Files.createDirectories(path.getParent());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), entries);
+            System.out.println("📏 Replay baseline for " + entries.size() + " snapshots written to " + path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write replay baseline " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    // what wall times depend on besides the code; deliberately not the host name, which CI runners do not keep
+    private static String machine() {
+        return System.getProperty("os.arch") + ", " + Runtime.getRuntime().availableProcessors() + " cpus, Java " +
+                Runtime.version();
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
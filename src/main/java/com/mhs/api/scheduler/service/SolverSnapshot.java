@@ -0,0 +1,60 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.model.Classroom;
+import com.mhs.api.scheduler.model.Course;
+import com.mhs.api.scheduler.model.SectionInput;
+import com.mhs.api.scheduler.model.Semester;
+import com.mhs.api.scheduler.model.Teacher;
+import com.mhs.api.scheduler.model.TimeSlot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a solver reads for one semester, frozen: the reference rows, the semester's
+ * sections in the order generate loads them, and the slots other semesters hold. Written as
+ * JSON by {@link SolverReplay}, so the same input can be solved again after the tables (or the
+ * solver) have changed.
+ *
+ * {@code format} is bumped whenever a field changes meaning; older files are refused rather
+ * than replayed wrongly.
+ */
+public record SolverSnapshot(
+        int format,
+        String school,
+        int semesterId,
+        String capturedAt,
+        long referenceVersion,
+        List<TimeSlot> timeslots,
+        List<Classroom> classrooms,
+        List<Teacher> teachers,
+        List<Course> courses,
+        List<Semester> semesters,
+        Map<Integer, String> roomTypes,
+        Map<Integer, String> specializations,
+        List<SectionInput> sections,
+        List<ExactScheduler.Booking> booked
+) {
+    public static final int FORMAT = 1;
+
+    public SolverSnapshot {
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unsupported snapshot format " + format + " (expected " + FORMAT + ")");
+        }
+        timeslots = List.copyOf(timeslots);
+        classrooms = List.copyOf(classrooms);
+        teachers = List.copyOf(teachers);
+        courses = List.copyOf(courses);
+        semesters = List.copyOf(semesters);
+        roomTypes = Map.copyOf(roomTypes);
+        specializations = Map.copyOf(specializations);
+        sections = List.copyOf(sections);
+        booked = List.copyOf(booked);
+    }
+
+    /** The reference data as it was when the snapshot was taken. */
+    public ReferenceData reference() {
+        return new ReferenceData(referenceVersion, timeslots, classrooms, teachers, courses, semesters,
+                roomTypes, specializations);
+    }
+}
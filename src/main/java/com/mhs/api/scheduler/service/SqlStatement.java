@@ -0,0 +1,12 @@
+package com.mhs.api.scheduler.service;
+
+/**
+ * A named SQL statement. Each one is prepared once per physical connection and reused,
+ * so declare them as constants rather than building SQL strings per call.
+ */
+public record SqlStatement(String name, String sql) {
+
+    public static SqlStatement of(String name, String sql) {
+        return new SqlStatement(name, sql);
+    }
+}
@@ -0,0 +1,284 @@
+package com.mhs.api.scheduler.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the whole database in a shared-cache in-memory SQLite instance.
+ *
+ * At startup the disk file is copied in with the online backup API ("restore from"). Journal
+ * entries newer than the last snapshot are replayed once every singleton is up, i.e. after the
+ * schema migrations they were written against and before the web server takes traffic.
+ *
+ * While running, every committed write is appended to the journal as one JSON line and fsynced
+ * before its caller is released. Snapshots copy the memory database back over the disk file
+ * ("backup to" a temporary file that is then moved into place) and empty the journal.
+ *
+ * The snapshot records the last journal sequence it contains in journal_checkpoint, so a crash
+ * between replacing the file and truncating the journal does not replay anything twice.
+ *
+ * Lock order is always pooled connection first, then this object's monitor: journal flushes run
+ * while the writer still holds the connection, and a snapshot takes the connection before it
+ * touches the journal, so nothing commits between the checkpoint and the truncate.
+ */
+public class SqliteMemoryStore implements GroupCommitWriter.CommitListener, SmartInitializingSingleton, AutoCloseable {
+
+    private static final String CHECKPOINT_TABLE = "CREATE TABLE IF NOT EXISTS journal_checkpoint (" +
+            "id INTEGER PRIMARY KEY CHECK (id = 1), seq INTEGER NOT NULL, taken_at DATETIME DEFAULT CURRENT_TIMESTAMP)";
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Path diskFile;
+    private final Path journalFile;
+    private final String memoryUrl;
+    private final ThreadLocal<List<JournalEntry>> staged = ThreadLocal.withInitial(ArrayList::new);
+
+    private Connection anchor;
+    private FileChannel journal;
+    private long seq;
+    private DataSource pool;
+    private long snapshotIntervalSeconds;
+    private ScheduledExecutorService timer;
+
+    public SqliteMemoryStore(Path diskFile, Path journalFile, String memoryUrl) {
+        this.diskFile = diskFile;
+        this.journalFile = journalFile;
+        this.memoryUrl = memoryUrl;
+    }
+
+    public String memoryUrl() {
+        return memoryUrl;
+    }
+
+    /** Loads the disk file. The anchor connection keeps the memory database alive. */
+    public void open() throws SQLException, IOException {
+        long start = System.nanoTime();
+        anchor = DriverManager.getConnection(memoryUrl);
+        try (Statement st = anchor.createStatement()) {
+            if (Files.exists(diskFile)) st.executeUpdate("restore from '" + diskFile.toAbsolutePath() + "'");
+            st.execute(CHECKPOINT_TABLE);
+        }
+        journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        System.out.println("✅ Loaded " + diskFile + " into memory in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    public void attach(DataSource pool, long snapshotIntervalSeconds) {
+        this.pool = pool;
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    /** Replays the journal, then starts periodic snapshots; the first comes right away if anything was replayed. */
+    @Override
+    public void afterSingletonsInstantiated() {
+        int replayed;
+        try (Connection con = pool.getConnection()) {
+            replayed = replay(con, checkpoint(con));
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not replay " + journalFile + ": " + e.getMessage(), e);
+        }
+        if (replayed > 0) System.out.println("✅ Replayed " + replayed + " journal entries up to seq " + seq);
+
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sqlite-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::scheduledSnapshot,
+                replayed > 0 ? 0 : snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // ---------------------------------------------------------
+    // Journal
+    // ---------------------------------------------------------
+
+    /**
+     * Stages a successful write for the journal. Inside a Spring transaction it is flushed after the
+     * commit; otherwise whoever committed it calls {@link #committed()}.
+     */
+    public void record(String sql, Object[] params) {
+        List<JournalEntry> entries = staged.get();
+        if (entries.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) rolledBack();
+                }
+            });
+        }
+        entries.add(new JournalEntry(sql, params.clone()));
+    }
+
+    /** Appends everything this thread staged and fsyncs the journal. */
+    @Override
+    public void committed() {
+        List<JournalEntry> entries = staged.get();
+        if (entries.isEmpty()) return;
+        try {
+            synchronized (this) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                for (JournalEntry e : entries) {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("seq", ++seq);
+                    line.put("sql", e.sql());
+                    line.put("params", e.params());
+                    out.write(JSON.writeValueAsBytes(line));
+                    out.write('\n');
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+                while (buffer.hasRemaining()) journal.write(buffer);
+                journal.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to " + journalFile, e);
+        } finally {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void rolledBack() {
+        staged.get().clear();
+    }
+
+    private synchronized int replay(Connection con, long checkpoint) throws SQLException, IOException {
+        seq = checkpoint;
+        int replayed = 0;
+
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JsonNode entry;
+                try {
+                    entry = JSON.readTree(line);
+                } catch (IOException torn) {
+                    // the last append was cut short by the crash; it was never acknowledged
+                    System.out.println("⚠️ Ignoring incomplete journal entry after seq " + seq);
+                    break;
+                }
+                long entrySeq = entry.get("seq").asLong();
+                if (entrySeq <= checkpoint) continue;
+                try (PreparedStatement ps = con.prepareStatement(entry.get("sql").asText())) {
+                    JsonNode params = entry.get("params");
+                    for (int i = 0; i < params.size(); i++) ps.setObject(i + 1, value(params.get(i)));
+                    ps.executeUpdate();
+                } catch (SQLException ex) {
+                    // the journal only holds committed writes, so skipping one would leave memory out of
+                    // step with what clients were told, and the next snapshot would make that permanent
+                    con.rollback();
+                    throw new SQLException("Journal entry " + entrySeq + " failed to replay: " + ex.getMessage(), ex);
+                }
+                seq = entrySeq;
+                replayed++;
+            }
+            con.commit();
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+        return replayed;
+    }
+
+    private static Object value(JsonNode node) {
+        if (node == null || node.isNull()) return null;
+        if (node.isInt()) return node.intValue();
+        if (node.isIntegralNumber()) return node.longValue();
+        if (node.isNumber()) return node.doubleValue();
+        if (node.isBoolean()) return node.booleanValue();
+        return node.asText();
+    }
+
+    private static long checkpoint(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT seq FROM journal_checkpoint WHERE id = 1")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Snapshots
+    // ---------------------------------------------------------
+
+    /** Writes the memory database back to disk and empties the journal. */
+    public void snapshot() throws SQLException, IOException {
+        // borrowing the pool's only connection keeps every writer out until the journal is reset
+        try (Connection con = pool.getConnection()) {
+            snapshot(con);
+        }
+    }
+
+    private synchronized void snapshot(Connection con) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Path tmp = diskFile.resolveSibling(diskFile.getFileName() + ".snapshot");
+        Files.deleteIfExists(tmp);
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate("INSERT OR REPLACE INTO journal_checkpoint (id, seq, taken_at) VALUES (1, " + seq + ", CURRENT_TIMESTAMP)");
+            st.executeUpdate("backup to '" + tmp.toAbsolutePath() + "'");
+        }
+        Files.move(tmp, diskFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal.truncate(0);
+        journal.force(true);
+        System.out.println("💾 Snapshot of in-memory database written to " + diskFile + " (journal seq " + seq + ") in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            System.out.println("⚠️ Scheduled snapshot failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Takes the final snapshot. Runs after the pool has been closed, so the anchor is the only
+     * connection left and can be used directly.
+     */
+    @Override
+    public void close() throws SQLException, IOException {
+        if (timer != null) timer.shutdownNow();
+        try {
+            snapshot(anchor);
+        } finally {
+            journal.close();
+            anchor.close();
+        }
+    }
+
+    private record JournalEntry(String sql, Object[] params) {}
+}
@@ -3,144 +3,174 @@ package com.mhs.api.scheduler.service;
 import com.mhs.api.scheduler.dto.SectionDto;
 import com.mhs.api.scheduler.dto.SemesterDto;
 import com.mhs.api.scheduler.dto.StudentProgressDto;
+import com.mhs.api.scheduler.dto.StudentScheduleChangesDto;
 import com.mhs.api.scheduler.dto.StudentScheduleItemDto;
 import com.mhs.api.scheduler.model.*;
+import com.mhs.api.scheduler.utility.Util;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class StudentPlannerService {
 
+    // prereqs_met: no prerequisite, or the student passed it
+    // time_conflict: the section shares a timeslot with another section the student is enrolled in
+    private static final FilteredListing AVAILABLE_SECTIONS = new FilteredListing("sections.availableForStudent",
+            "SELECT s.id AS section_id, c.code AS course_code, c.name AS course_name, " +
+                    "s.section_number, s.schedule, s.seats_left, s.teacher, " +
+                    "(c.prerequisite_id IS NULL OR EXISTS (SELECT 1 FROM student_course_history h " +
+                    "   WHERE h.student_id = ? AND h.course_id = c.prerequisite_id AND h.status = 'passed')) AS prereqs_met, " +
+                    "EXISTS (SELECT 1 FROM student_schedule ss " +
+                    "   JOIN schedule_assignments mine ON mine.section_id = ss.section_id " +
+                    "   JOIN schedule_assignments other ON other.timeslot_id = mine.timeslot_id " +
+                    "   WHERE ss.student_id = ? AND other.section_id = s.id AND ss.section_id <> s.id) AS time_conflict " +
+                    "FROM sections s " +
+                    "JOIN courses c ON c.id = s.course_id " +
+                    "WHERE s.semester_id = ?");
+
+    private static final String STUDENT_SCHEDULE_SELECT =
+            "SELECT s.id AS section_id, c.code AS course_code, c.name AS course_name, " +
+                    "s.section_number, s.schedule, s.teacher, " +
+                    "EXISTS (SELECT 1 FROM student_schedule ss2 " +
+                    "   JOIN schedule_assignments mine ON mine.section_id = ss2.section_id " +
+                    "   JOIN schedule_assignments other ON other.timeslot_id = mine.timeslot_id " +
+                    "   WHERE ss2.student_id = ss.student_id AND other.section_id = s.id AND ss2.section_id <> s.id) AS time_conflict " +
+                    "FROM student_schedule ss " +
+                    "JOIN sections s ON ss.section_id = s.id " +
+                    "JOIN courses c ON s.course_id = c.id " +
+                    "WHERE ss.student_id = ? AND s.semester_id = ?";
+    private static final FilteredListing STUDENT_SCHEDULE = new FilteredListing("studentSchedule.forSemester",
+            STUDENT_SCHEDULE_SELECT);
+    private static final SqlStatement STUDENT_SCHEDULE_FOR_SECTIONS = SqlStatement.of("studentSchedule.forSections",
+            STUDENT_SCHEDULE_SELECT + " AND s.id IN (SELECT value FROM json_each(?))");
+
+    private static final SqlStatement ENROLL = SqlStatement.of("studentSchedule.insert",
+            "INSERT INTO student_schedule (student_id, section_id) VALUES (?, ?)");
+    // changes no row when the section is full, so the seat check and the decrement are one step
+    private static final SqlStatement TAKE_SEAT = SqlStatement.of("sections.takeSeat",
+            "UPDATE sections SET seats_left = seats_left - 1 WHERE id = ? AND seats_left > 0");
+    private static final SqlStatement CREDITS_EARNED = SqlStatement.of("history.creditsEarned",
+            "SELECT COALESCE(SUM(c.credits), 0) " +
+                    "FROM student_course_history h " +
+                    "JOIN courses c ON c.id = h.course_id " +
+                    "WHERE h.student_id = ? AND h.status = 'passed'");
+    private static final SqlStatement DROP = SqlStatement.of("studentSchedule.delete",
+            "DELETE FROM student_schedule WHERE student_id = ? AND section_id = ?");
+    private static final SqlStatement RELEASE_SEAT = SqlStatement.of("sections.releaseSeat",
+            "UPDATE sections SET seats_left = seats_left + 1 WHERE id = ?");
+
+    private static final RowMapper<SectionDto> SECTION_DTO = sectionDto(false);
+    private static final RowMapper<SectionDto> SECTION_SUMMARY_DTO = sectionDto(true);
+
+    private static RowMapper<SectionDto> sectionDto(boolean summary) {
+        return (rs, i) -> new SectionDto(
+                rs.getInt("section_id"),
+                rs.getString("course_code"),
+                rs.getString("course_name"),
+                summary ? null : rs.getString("schedule"),
+                rs.getInt("seats_left"),
+                rs.getString("teacher"),
+                rs.getBoolean("prereqs_met"),
+                rs.getBoolean("time_conflict")
+        );
+    }
+
+    private static final RowMapper<StudentScheduleItemDto> SCHEDULE_ITEM_DTO = scheduleItemDto(false);
+    private static final RowMapper<StudentScheduleItemDto> SCHEDULE_ITEM_SUMMARY_DTO = scheduleItemDto(true);
+
+    private static RowMapper<StudentScheduleItemDto> scheduleItemDto(boolean summary) {
+        return (rs, i) -> new StudentScheduleItemDto(
+                rs.getInt("section_id"),
+                rs.getString("course_code"),
+                rs.getString("course_name"),
+                summary ? null : rs.getString("schedule"),
+                rs.getString("teacher"),
+                rs.getBoolean("time_conflict")
+        );
+    }
+
     private final DataService dataService;
+    private final ReferenceCatalog catalog;
+    private final ChangeLog changeLog;
 
-    public StudentPlannerService(DataService dataService) {
+    public StudentPlannerService(DataService dataService, ReferenceCatalog catalog, ChangeLog changeLog) {
         this.dataService = dataService;
+        this.catalog = catalog;
+        this.changeLog = changeLog;
     }
 
     // ---------------------------------------------------------
     // 1. GET ALL SEMESTERS
     // ---------------------------------------------------------
     public List<SemesterDto> getAllSemesters() {
-        List<Map<String, Object>> rows = dataService.query("""
-        SELECT id, name, year, order_in_year, start_date, end_date, is_active
-        FROM semesters
-        ORDER BY year, order_in_year
-    """);
-
-        List<SemesterDto> result = new ArrayList<>();
-
-        for (Map<String, Object> row : rows) {
-            result.add(new SemesterDto(
-                    ((Number) row.get("id")).intValue(),
-                    (String) row.get("name"),
-                    ((Number) row.get("year")).intValue(),
-                    ((Number) row.get("order_in_year")).intValue(),
-                    row.get("start_date") != null ? row.get("start_date").toString() : null,
-                    row.get("end_date") != null ? row.get("end_date").toString() : null,
-                    ((Number) row.get("is_active")).intValue() == 1
-            ));
-        }
-
-        return result;
+        return catalog.current().semesters().stream()
+                .map(sem -> new SemesterDto(
+                        sem.id(),
+                        sem.name(),
+                        sem.year(),
+                        sem.orderInYear(),
+                        sem.startDate(),
+                        sem.endDate(),
+                        sem.active()
+                ))
+                .toList();
     }
 
     // ---------------------------------------------------------
     // 2. LIST AVAILABLE SECTIONS FOR STUDENT + SEMESTER
     // ---------------------------------------------------------
-    public List<SectionDto> listAvailableSections(int studentId, int semesterId) {
-
-        List<Map<String, Object>> rows = dataService.query(
-                "SELECT s.id AS section_id, c.code AS course_code, c.name AS course_name, " +
-                        "s.section_number, s.schedule, s.seats_left, s.teacher " +
-                        "FROM sections s " +
-                        "JOIN courses c ON c.id = s.course_id " +
-                        "WHERE s.semester_id = ?",
-                semesterId
-        );
-
-        List<SectionDto> result = new ArrayList<>();
-
-        for (Map<String, Object> row : rows) {
-            result.add(new SectionDto(
-                    ((Number) row.get("section_id")).intValue(),
-                    (String) row.get("course_code"),
-                    (String) row.get("course_name"),
-                    (String) row.get("schedule"),
-                    ((Number) row.get("seats_left")).intValue(),
-                    (String) row.get("teacher"),
-                    (boolean) row.get("prereqsMet"),
-                    (boolean) row.get("timeConflict")
-            ));
-        }
-
-        return result;
+    // filtered and keyset-paged in SQL; a paged result carries one row past the limit (see SectionFilter)
+    public List<SectionDto> listAvailableSections(int studentId, int semesterId, SectionFilter filter) {
+        return dataService.list(AVAILABLE_SECTIONS.statement(filter), filter.summary() ? SECTION_SUMMARY_DTO : SECTION_DTO,
+                filter.params(studentId, studentId, semesterId));
     }
 
     // ---------------------------------------------------------
     // 3. GET STUDENT SCHEDULE
     // ---------------------------------------------------------
     public List<StudentScheduleItemDto> getStudentSchedule(int studentId, int semesterId) {
+        return getStudentSchedule(studentId, semesterId, SectionFilter.NONE);
+    }
 
-        List<Map<String, Object>> rows = dataService.query(
-                "SELECT c.code AS course_code, c.name AS course_name, " +
-                        "s.section_number, s.schedule, s.teacher " +
-                        "FROM student_schedule ss " +
-                        "JOIN sections s ON ss.section_id = s.id " +
-                        "JOIN courses c ON s.course_id = c.id " +
-                        "WHERE ss.student_id = ? AND s.semester_id = ?",
-                studentId, semesterId
-        );
+    public List<StudentScheduleItemDto> getStudentSchedule(int studentId, int semesterId, SectionFilter filter) {
+        return dataService.list(STUDENT_SCHEDULE.statement(filter), filter.summary() ? SCHEDULE_ITEM_SUMMARY_DTO : SCHEDULE_ITEM_DTO,
+                filter.params(studentId, semesterId));
+    }
 
-        List<StudentScheduleItemDto> result = new ArrayList<>();
-
-        for (Map<String, Object> row : rows) {
-            result.add(new StudentScheduleItemDto(
-                    ((Number) row.get("section_id")).intValue(),
-                    (String) row.get("course_code"),
-                    (String) row.get("course_name"),
-                    (String) row.get("schedule"),
-                    (String) row.get("teacher"),
-                    (boolean) row.get("timeConflict")
-            ));
+    /**
+     * Items of the student's schedule that changed after version {@code since}. A moved, added or
+     * dropped section can flip the conflict flag of the others, so any of those resends them all.
+     */
+    public StudentScheduleChangesDto getStudentScheduleChanges(int studentId, int semesterId, long since) {
+        ChangeLog.Delta delta = changeLog.studentChanges(studentId, semesterId, since);
+        List<StudentScheduleItemDto> items;
+        if (delta.fullReload() || delta.timesChanged()) {
+            items = getStudentSchedule(studentId, semesterId);
+        } else if (delta.sectionIds().isEmpty()) {
+            items = List.of();
+        } else {
+            items = dataService.list(STUDENT_SCHEDULE_FOR_SECTIONS, SCHEDULE_ITEM_DTO,
+                    studentId, semesterId, Util.jsonArray(delta.sectionIds()));
         }
-
-        return result;
+        Set<Integer> present = items.stream().map(StudentScheduleItemDto::sectionId).collect(Collectors.toSet());
+        List<Integer> removed = delta.sectionIds().stream().filter(id -> !present.contains(id)).toList();
+        return new StudentScheduleChangesDto(delta.version(), delta.fullReload(), items, removed);
     }
 
     // ---------------------------------------------------------
     // 4. ENROLL STUDENT IN SECTION
     // ---------------------------------------------------------
     public boolean enrollStudent(int studentId, int sectionId) {
-
-        // check seats
-        List<Map<String, Object>> seatRows = dataService.query(
-                "SELECT seats_left FROM sections WHERE id = ?",
-                sectionId
-        );
-
-        int seatsLeft = 0;
-        if (!seatRows.isEmpty()) {
-            seatsLeft = ((Number) seatRows.get(0).get("seats_left")).intValue();
-        }
-
-        if (seatsLeft <= 0) return false;
-
-        // enroll
-        dataService.update(
-                "INSERT INTO student_schedule (student_id, section_id) VALUES (?, ?)",
-                studentId, sectionId
-        );
-
-        // decrement seats
-        dataService.update(
-                "UPDATE sections SET seats_left = seats_left - 1 WHERE id = ?",
-                sectionId
-        );
-
-        return true;
+        // take a seat if one is left, then enroll; one write unit, so a failed insert gives the seat back
+        return dataService.writeUnit(writes -> {
+            if (writes.execute(TAKE_SEAT, sectionId) == 0) return false;
+            writes.execute(ENROLL, studentId, sectionId);
+            return true;
+        });
     }
 
     // ---------------------------------------------------------
@@ -148,17 +178,7 @@ public class StudentPlannerService {
     // ---------------------------------------------------------
     public StudentProgressDto getProgress(int studentId) {
 
-        List<Map<String, Object>> rows = dataService.query(
-                "SELECT COALESCE(SUM(credits), 0) AS total " +
-                        "FROM student_course_history " +
-                        "WHERE student_id = ? AND status = 'passed'",
-                studentId
-        );
-
-        int creditsEarned = 0;
-        if (!rows.isEmpty() && rows.get(0).get("total") != null) {
-            creditsEarned = ((Number) rows.get(0).get("total")).intValue();
-        }
+        int creditsEarned = (int) dataService.queryDouble(CREDITS_EARNED, 0.0, studentId);
 
         int totalRequiredCredits = 30;  // as per challenge definition
         int creditsRemaining = Math.max(totalRequiredCredits - creditsEarned, 0);
@@ -180,30 +200,12 @@ public class StudentPlannerService {
 // 6. DROP A SECTION
 // ---------------------------------------------------------
     public boolean dropSection(int studentId, int sectionId) {
-
-        // Was the student enrolled?
-        List<Map<String, Object>> rows = dataService.query(
-                "SELECT id FROM student_schedule WHERE student_id = ? AND section_id = ?",
-                studentId, sectionId
-        );
-
-        if (rows.isEmpty()) {
-            return false; // Not enrolled
-        }
-
-        // Remove enrollment
-        dataService.update(
-                "DELETE FROM student_schedule WHERE student_id = ? AND section_id = ?",
-                studentId, sectionId
-        );
-
-        // Increase seats
-        dataService.update(
-                "UPDATE sections SET seats_left = seats_left + 1 WHERE id = ?",
-                sectionId
-        );
-
-        return true;
+        // remove the enrollment and give its seat back in one write unit; not enrolled changes nothing
+        return dataService.writeUnit(writes -> {
+            if (writes.execute(DROP, studentId, sectionId) == 0) return false;
+            writes.execute(RELEASE_SEAT, sectionId);
+            return true;
+        });
     }
 
 }
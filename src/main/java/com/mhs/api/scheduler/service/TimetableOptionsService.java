@@ -0,0 +1,314 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.dto.TimetableOptionDto;
+import com.mhs.api.scheduler.dto.TimetableOptionsDto;
+import com.mhs.api.scheduler.dto.TimetableSectionDto;
+import com.mhs.api.scheduler.model.Course;
+import com.mhs.api.scheduler.model.TimeSlot;
+import com.mhs.api.scheduler.utility.Util;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Finds combinations of sections, one per requested course, that fit together in a student's week.
+ *
+ * Each section becomes a bitmask of the timeslots it meets in (bit = position in the timeslot
+ * list). The search picks courses fewest-sections-first, extends a running mask only with
+ * sections that do not overlap it, and drops a branch as soon as some later course has no
+ * section left that fits. Full sections never enter the search. Options are ranked by gap hours,
+ * days on campus and seats as they are found, and only the best {@code limit} are kept, so the
+ * result is the top of everything searched rather than the first {@code limit} reached.
+ *
+ * Each of the first course's sections is a branch with an equal share of the node budget and its
+ * own best-{@code limit} heap. When the branching is large the branches run in parallel; since
+ * none of them depends on another, the same input gives the same options either way.
+ */
+@Service
+public class TimetableOptionsService {
+
+    private static final SqlStatement SECTION_SLOTS = SqlStatement.of("timetableOptions.sectionSlots",
+            "SELECT s.id, s.course_id, s.section_number, s.seats_left, s.schedule, s.teacher, sa.timeslot_id " +
+                    "FROM sections s JOIN schedule_assignments sa ON sa.section_id = s.id " +
+                    "WHERE s.semester_id = ? AND s.course_id IN (SELECT value FROM json_each(?)) " +
+                    "ORDER BY s.id");
+    // what the student already attends this semester, apart from the courses being planned
+    private static final SqlStatement BUSY_SLOTS = SqlStatement.of("timetableOptions.busySlots",
+            "SELECT sa.timeslot_id FROM student_schedule ss " +
+                    "JOIN sections s ON s.id = ss.section_id " +
+                    "JOIN schedule_assignments sa ON sa.section_id = s.id " +
+                    "WHERE ss.student_id = ? AND s.semester_id = ? " +
+                    "AND s.course_id NOT IN (SELECT value FROM json_each(?))");
+
+    static final int DEFAULT_LIMIT = 20;
+    static final int MAX_LIMIT = 500;
+    private static final long NODE_BUDGET = 2_000_000;
+    private static final long PARALLEL_MIN_BRANCHES = 4_096;
+
+    // best first; the section ids make it a total order, so ties never depend on search order
+    private static final Comparator<Ranked> RANKING = Comparator.comparingInt(Ranked::gapHours)
+            .thenComparingInt(Ranked::days)
+            .thenComparingInt(r -> -r.minSeats())
+            .thenComparing(Ranked::key);
+
+    private final DataService dataService;
+    private final ReferenceCatalog catalog;
+
+    public TimetableOptionsService(DataService dataService, ReferenceCatalog catalog) {
+        this.dataService = dataService;
+        this.catalog = catalog;
+    }
+
+    private static final class Candidate {
+        final int sectionId;
+        final int courseId;
+        final int sectionNumber;
+        final int seatsLeft;
+        final String schedule;
+        final String teacher;
+        final long[] mask;
+
+        Candidate(int sectionId, int courseId, int sectionNumber, int seatsLeft, String schedule, String teacher, int words) {
+            this.sectionId = sectionId;
+            this.courseId = courseId;
+            this.sectionNumber = sectionNumber;
+            this.seatsLeft = seatsLeft;
+            this.schedule = schedule;
+            this.teacher = teacher;
+            this.mask = new long[words];
+        }
+    }
+
+    public TimetableOptionsDto options(int studentId, int semesterId, List<String> courseCodes, Integer limit) {
+        ReferenceData ref = catalog.current();
+        ref.semester(semesterId).orElseThrow(() -> new IllegalArgumentException("Semester not found: " + semesterId));
+        if (courseCodes == null || courseCodes.isEmpty()) throw new IllegalArgumentException("courses required");
+        int max = limit == null ? DEFAULT_LIMIT : limit;
+        if (max < 1 || max > MAX_LIMIT) throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+
+        Map<String, Course> byCode = new HashMap<>();
+        for (Course c : ref.courses()) byCode.putIfAbsent(c.code().toUpperCase(Locale.ROOT), c);
+        List<Course> courses = new ArrayList<>();
+        for (String code : new LinkedHashSet<>(courseCodes)) {
+            Course c = byCode.get(code.trim().toUpperCase(Locale.ROOT));
+            if (c == null) throw new IllegalArgumentException("Unknown course: " + code);
+            if (!courses.contains(c)) courses.add(c);
+        }
+        List<String> codes = courses.stream().map(Course::code).toList();
+        String courseIds = Util.jsonArray(courses.stream().map(Course::id).toList());
+
+        List<TimeSlot> slots = ref.timeslots();
+        Map<Integer, Integer> slotIndex = new HashMap<>();
+        for (int i = 0; i < slots.size(); i++) slotIndex.put(slots.get(i).id(), i);
+        int words = (slots.size() + 63) / 64;
+
+        long[] busy = new long[words];
+        dataService.forEach(BUSY_SLOTS, rs -> {
+            Integer slot = slotIndex.get(rs.getInt(1));
+            if (slot != null) busy[slot >>> 6] |= 1L << slot;
+        }, studentId, semesterId, courseIds);
+
+        Map<Integer, Candidate> sections = new LinkedHashMap<>();
+        dataService.forEach(SECTION_SLOTS, rs -> {
+            int id = rs.getInt("id");
+            Candidate c = sections.get(id);
+            if (c == null) {
+                c = new Candidate(id, rs.getInt("course_id"), rs.getInt("section_number"),
+                        rs.getInt("seats_left"), rs.getString("schedule"), rs.getString("teacher"), words);
+                sections.put(id, c);
+            }
+            Integer slot = slotIndex.get(rs.getInt("timeslot_id"));
+            if (slot != null) c.mask[slot >>> 6] |= 1L << slot;
+        }, semesterId, courseIds);
+
+        // per course: open sections that do not clash with what the student already has
+        List<Candidate[]> perCourse = new ArrayList<>();
+        List<String> unavailable = new ArrayList<>();
+        for (Course course : courses) {
+            Candidate[] open = sections.values().stream()
+                    .filter(c -> c.courseId == course.id() && c.seatsLeft > 0 && fits(busy, c.mask))
+                    .sorted(Comparator.comparingInt((Candidate c) -> -c.seatsLeft).thenComparingInt(c -> c.sectionId))
+                    .toArray(Candidate[]::new);
+            if (open.length == 0) unavailable.add(course.code());
+            perCourse.add(open);
+        }
+        if (!unavailable.isEmpty()) {
+            return new TimetableOptionsDto(studentId, semesterId, codes, unavailable, 0, true, List.of());
+        }
+        perCourse.sort(Comparator.comparingInt(a -> a.length));
+        Candidate[][] order = perCourse.toArray(Candidate[][]::new);
+
+        int[] dayOfSlot = new int[slots.size()];
+        List<String> days = new ArrayList<>(ref.timeslotsByDay().keySet());
+        for (int i = 0; i < slots.size(); i++) dayOfSlot[i] = days.indexOf(slots.get(i).day());
+
+        Search search = new Search(order, words, max, busy, dayOfSlot, days.size());
+        long branches = 1;
+        for (Candidate[] c : order) branches = Math.min(Long.MAX_VALUE / 64, branches * c.length);
+        if (branches >= PARALLEL_MIN_BRANCHES && order[0].length > 1) {
+            IntStream.range(0, order[0].length).parallel().forEach(search::fromFirst);
+        } else {
+            for (int i = 0; i < order[0].length; i++) search.fromFirst(i);
+        }
+
+        List<TimetableOptionDto> options = new ArrayList<>();
+        for (Ranked r : search.best()) {
+            List<TimetableSectionDto> picked = Arrays.stream(r.combo())
+                    .sorted(Comparator.comparingInt(c -> codes.indexOf(codeOf(ref, c))))
+                    .map(c -> new TimetableSectionDto(c.sectionId, codeOf(ref, c), c.sectionNumber, c.schedule, c.teacher, c.seatsLeft))
+                    .toList();
+            options.add(new TimetableOptionDto(options.size() + 1, r.days(), r.gapHours(), r.minSeats(), picked));
+        }
+        return new TimetableOptionsDto(studentId, semesterId, codes, List.of(), options.size(), search.exhaustive(), options);
+    }
+
+    private static String codeOf(ReferenceData ref, Candidate c) {
+        return ref.course(c.courseId).code();
+    }
+
+    private static boolean fits(long[] taken, long[] mask) {
+        for (int w = 0; w < mask.length; w++) if ((taken[w] & mask[w]) != 0) return false;
+        return true;
+    }
+
+    private record Ranked(Candidate[] combo, int gapHours, int days, int minSeats, String key) {}
+
+    private static Ranked rank(Candidate[] combo, long[] busy, int[] dayOfSlot, int dayCount) {
+        long[] week = busy.clone();
+        int minSeats = Integer.MAX_VALUE;
+        for (Candidate c : combo) {
+            for (int w = 0; w < week.length; w++) week[w] |= c.mask[w];
+            minSeats = Math.min(minSeats, c.seatsLeft);
+        }
+        int[] first = new int[dayCount];
+        int[] last = new int[dayCount];
+        int[] count = new int[dayCount];
+        Arrays.fill(first, -1);
+        for (int s = 0; s < dayOfSlot.length; s++) {
+            if ((week[s >>> 6] & (1L << s)) == 0) continue;
+            int d = dayOfSlot[s];
+            if (first[d] < 0) first[d] = s;
+            last[d] = s;
+            count[d]++;
+        }
+        int days = 0;
+        int gaps = 0;
+        for (int d = 0; d < dayCount; d++) {
+            if (count[d] == 0) continue;
+            days++;
+            gaps += last[d] - first[d] + 1 - count[d];
+        }
+        int[] ids = Arrays.stream(combo).mapToInt(c -> c.sectionId).sorted().toArray();
+        return new Ranked(combo, gaps, days, minSeats, Arrays.toString(ids));
+    }
+
+    /**
+     * Depth-first search from each of the first course's sections. A branch stops at its share of
+     * the node budget and keeps its best {@code limit} options in a heap (worst on top); the
+     * branches' heaps are merged at the end.
+     */
+    private static final class Search {
+        final Candidate[][] order;
+        final int words;
+        final int limit;
+        final long branchBudget;
+        final long[] busy;
+        final int[] dayOfSlot;
+        final int dayCount;
+        final Branch[] branches;
+
+        Search(Candidate[][] order, int words, int limit, long[] busy, int[] dayOfSlot, int dayCount) {
+            this.order = order;
+            this.words = words;
+            this.limit = limit;
+            this.branchBudget = Math.max(1, NODE_BUDGET / order[0].length);
+            this.busy = busy;
+            this.dayOfSlot = dayOfSlot;
+            this.dayCount = dayCount;
+            this.branches = new Branch[order[0].length];
+        }
+
+        private final class Branch {
+            final PriorityQueue<Ranked> best = new PriorityQueue<>(RANKING.reversed());
+            long nodes;
+            boolean cut;
+        }
+
+        boolean exhaustive() {
+            for (Branch b : branches) if (b.cut) return false;
+            return true;
+        }
+
+        List<Ranked> best() {
+            List<Ranked> all = new ArrayList<>();
+            for (Branch b : branches) all.addAll(b.best);
+            all.sort(RANKING);
+            return all.size() > limit ? all.subList(0, limit) : all;
+        }
+
+        void fromFirst(int first) {
+            Branch branch = new Branch();
+            long[] taken = new long[words * (order.length + 1)];
+            System.arraycopy(busy, 0, taken, 0, words);
+            Candidate[] picked = new Candidate[order.length];
+            place(taken, 0, order[0][first], picked);
+            if (order.length == 1 || viable(taken, 1)) descend(branch, taken, 1, picked);
+            branches[first] = branch;
+        }
+
+        private void descend(Branch branch, long[] taken, int depth, Candidate[] picked) {
+            if (depth == order.length) {
+                keep(branch, picked);
+                return;
+            }
+            for (Candidate c : order[depth]) {
+                if (++branch.nodes > branchBudget) {
+                    branch.cut = true;
+                    return;
+                }
+                if (!fitsAt(taken, depth, c.mask)) continue;
+                place(taken, depth, c, picked);
+                if (depth + 1 == order.length || viable(taken, depth + 1)) descend(branch, taken, depth + 1, picked);
+                if (branch.cut) return;
+            }
+        }
+
+        private void keep(Branch branch, Candidate[] picked) {
+            Ranked r = rank(picked, busy, dayOfSlot, dayCount);
+            if (branch.best.size() == limit) {
+                if (RANKING.compare(r, branch.best.peek()) >= 0) return;
+                branch.best.poll();
+            }
+            branch.best.add(new Ranked(picked.clone(), r.gapHours(), r.days(), r.minSeats(), r.key()));
+        }
+
+        // layer depth+1 of taken = layer depth plus c
+        private void place(long[] taken, int depth, Candidate c, Candidate[] picked) {
+            int from = depth * words;
+            for (int w = 0; w < words; w++) taken[from + words + w] = taken[from + w] | c.mask[w];
+            picked[depth] = c;
+        }
+
+        private boolean fitsAt(long[] taken, int depth, long[] mask) {
+            int from = depth * words;
+            for (int w = 0; w < words; w++) if ((taken[from + w] & mask[w]) != 0) return false;
+            return true;
+        }
+
+        // forward check: every course still to place has a section that fits the week so far
+        private boolean viable(long[] taken, int depth) {
+            for (int k = depth; k < order.length; k++) {
+                boolean any = false;
+                for (Candidate c : order[k]) {
+                    if (fitsAt(taken, depth, c.mask)) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any) return false;
+            }
+            return true;
+        }
+    }
+}
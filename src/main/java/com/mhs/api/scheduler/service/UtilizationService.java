@@ -0,0 +1,213 @@
+package com.mhs.api.scheduler.service;
+
+import com.mhs.api.scheduler.model.Classroom;
+import com.mhs.api.scheduler.model.Teacher;
+import com.mhs.api.scheduler.model.TimeSlot;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Teacher workload and room usage for a semester's timetable.
+ *
+ * Everything comes from one pass over the semester's schedule_assignments rows into counters
+ * indexed by position in the reference lists, so the only SQL is that scan. Results are cached
+ * per school and semester against the semester's schedule version and the reference data
+ * version; a request recomputes only when either moved, and generate refreshes the semester it
+ * rewrote.
+ */
+@Service
+public class UtilizationService {
+
+    private static final SqlStatement SEMESTER_ASSIGNMENTS = SqlStatement.of("assignments.utilizationScan",
+            "SELECT sa.timeslot_id, sa.room_id, sa.teacher_id FROM schedule_assignments sa " +
+                    "JOIN sections s ON s.id = sa.section_id WHERE s.semester_id = ?");
+    private static final int PEAK_SLOTS = 5;
+
+    private record Key(String school, int semesterId) {}
+
+    private record Cached(long scheduleVersion, long referenceVersion, Map<String, Object> stats) {}
+
+    private final DataService dataService;
+    private final ReferenceCatalog catalog;
+    private final ChangeLog changeLog;
+    private final SchoolRegistry schools;
+    private final Map<Key, Cached> cache = new ConcurrentHashMap<>();
+
+    public UtilizationService(DataService dataService, ReferenceCatalog catalog, ChangeLog changeLog,
+                              SchoolRegistry schools) {
+        this.dataService = dataService;
+        this.catalog = catalog;
+        this.changeLog = changeLog;
+        this.schools = schools;
+    }
+
+    /** Cached statistics, recomputed first if the timetable or reference data changed since. */
+    public Map<String, Object> forSemester(int semesterId) {
+        ReferenceData ref = catalog.current();
+        long version = changeLog.semesterScheduleVersion(semesterId);
+        Cached cached = cache.get(new Key(schools.current(), semesterId));
+        if (cached != null && cached.scheduleVersion() == version && cached.referenceVersion() == ref.version()) {
+            return cached.stats();
+        }
+        return compute(semesterId, ref, version);
+    }
+
+    /** Recomputes now, e.g. right after the semester was regenerated. */
+    public Map<String, Object> refresh(int semesterId) {
+        return compute(semesterId, catalog.current(), changeLog.semesterScheduleVersion(semesterId));
+    }
+
+    // the version is read before the scan: a change racing with it leaves an entry that looks stale, never one that looks fresh
+    private Map<String, Object> compute(int semesterId, ReferenceData ref, long version) {
+        ref.semester(semesterId).orElseThrow(() -> new IllegalArgumentException("Semester not found: " + semesterId));
+
+        List<TimeSlot> slots = ref.timeslots();
+        List<Classroom> rooms = ref.classrooms();
+        List<Teacher> teachers = ref.teachers();
+        List<String> days = new ArrayList<>(ref.timeslotsByDay().keySet());
+        int dayCount = days.size();
+
+        int[] slotIndex = denseIndex(slots.stream().mapToInt(TimeSlot::id).toArray());
+        int[] roomIndex = denseIndex(rooms.stream().mapToInt(Classroom::id).toArray());
+        int[] teacherIndex = denseIndex(teachers.stream().mapToInt(Teacher::id).toArray());
+        int[] slotDay = new int[slots.size()];
+        int[] slotsPerDay = new int[dayCount];
+        for (int i = 0; i < slots.size(); i++) {
+            slotDay[i] = days.indexOf(slots.get(i).day());
+            slotsPerDay[slotDay[i]]++;
+        }
+
+        int[] teacherDayHours = new int[teachers.size() * dayCount];
+        int[] roomHours = new int[rooms.size()];
+        int[] slotSessions = new int[slots.size()];
+        int[] rows = new int[1];
+        dataService.forEach(SEMESTER_ASSIGNMENTS, rs -> {
+            int slot = lookup(slotIndex, rs.getInt(1));
+            if (slot < 0) return;
+            rows[0]++;
+            slotSessions[slot]++;
+            int room = lookup(roomIndex, rs.getInt(2));
+            if (room >= 0) roomHours[room]++;
+            int teacher = lookup(teacherIndex, rs.getInt(3));
+            if (teacher >= 0) teacherDayHours[teacher * dayCount + slotDay[slot]]++;
+        }, semesterId);
+
+        // teachers: a day offers at most MAX_TEACHER_HOURS_PER_DAY of its slots
+        int weekCapacity = 0;
+        for (int perDay : slotsPerDay) weekCapacity += Math.min(ExactScheduler.MAX_TEACHER_HOURS_PER_DAY, perDay);
+        List<Map<String, Object>> teacherRows = new ArrayList<>();
+        int teacherHoursUsed = 0;
+        int idleTeachers = 0;
+        for (int t = 0; t < teachers.size(); t++) {
+            int weekly = 0;
+            int busiest = 0;
+            Map<String, Integer> perDay = new LinkedHashMap<>();
+            for (int d = 0; d < dayCount; d++) {
+                int h = teacherDayHours[t * dayCount + d];
+                perDay.put(days.get(d), h);
+                weekly += h;
+                busiest = Math.max(busiest, h);
+            }
+            teacherHoursUsed += weekly;
+            if (weekly == 0) {
+                idleTeachers++;
+                continue;
+            }
+            Teacher teacher = teachers.get(t);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("teacher_id", teacher.id());
+            row.put("teacher", teacher.fullName());
+            row.put("specialization", ref.specializationName(teacher.specializationId()));
+            row.put("hours_per_day", perDay);
+            row.put("weekly_hours", weekly);
+            row.put("busiest_day_hours", busiest);
+            row.put("free_hours", Math.max(0, weekCapacity - weekly));
+            teacherRows.add(row);
+        }
+
+        // rooms, grouped by type in the order the types first appear
+        Map<Integer, int[]> byType = new LinkedHashMap<>(); // {rooms, used room-hours}
+        int idleRooms = 0;
+        for (int r = 0; r < rooms.size(); r++) {
+            int[] agg = byType.computeIfAbsent(rooms.get(r).roomTypeId(), k -> new int[2]);
+            agg[0]++;
+            agg[1] += roomHours[r];
+            if (roomHours[r] == 0) idleRooms++;
+        }
+        List<Map<String, Object>> typeRows = new ArrayList<>();
+        int roomSlotsUsed = 0;
+        for (Map.Entry<Integer, int[]> e : byType.entrySet()) {
+            int available = e.getValue()[0] * slots.size();
+            int used = e.getValue()[1];
+            roomSlotsUsed += used;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("room_type", ref.roomTypeName(e.getKey()));
+            row.put("rooms", e.getValue()[0]);
+            row.put("room_slots", available);
+            row.put("used_slots", used);
+            row.put("occupancy_pct", percent(used, available));
+            row.put("idle_slots", available - used);
+            typeRows.add(row);
+        }
+
+        // busiest slots first; a room and a teacher per session, so the rest of each is free
+        Integer[] order = new Integer[slots.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> slotSessions[b] != slotSessions[a] ? slotSessions[b] - slotSessions[a] : a - b);
+        List<Map<String, Object>> peakRows = new ArrayList<>();
+        for (int i = 0; i < Math.min(PEAK_SLOTS, order.length) && slotSessions[order[i]] > 0; i++) {
+            TimeSlot slot = slots.get(order[i]);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("timeslot_id", slot.id());
+            row.put("slot", slot.day() + " " + slot.start() + "-" + slot.end());
+            row.put("sessions", slotSessions[order[i]]);
+            row.put("rooms_free", Math.max(0, rooms.size() - slotSessions[order[i]]));
+            row.put("teachers_free", Math.max(0, teachers.size() - slotSessions[order[i]]));
+            peakRows.add(row);
+        }
+
+        int roomSlotsTotal = rooms.size() * slots.size();
+        int teacherHoursTotal = teachers.size() * weekCapacity;
+        Map<String, Object> idle = new LinkedHashMap<>();
+        idle.put("room_slots_total", roomSlotsTotal);
+        idle.put("room_slots_free", roomSlotsTotal - roomSlotsUsed);
+        idle.put("room_occupancy_pct", percent(roomSlotsUsed, roomSlotsTotal));
+        idle.put("teacher_hours_total", teacherHoursTotal);
+        idle.put("teacher_hours_free", Math.max(0, teacherHoursTotal - teacherHoursUsed));
+        idle.put("teacher_load_pct", percent(teacherHoursUsed, teacherHoursTotal));
+        idle.put("idle_rooms", idleRooms);
+        idle.put("idle_teachers", idleTeachers);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("semester_id", semesterId);
+        out.put("schedule_version", version);
+        out.put("assignments", rows[0]);
+        out.put("teachers", teacherRows);
+        out.put("room_types", typeRows);
+        out.put("peak_slots", peakRows);
+        out.put("idle_capacity", idle);
+        Map<String, Object> stats = Collections.unmodifiableMap(out);
+        cache.put(new Key(schools.current(), semesterId), new Cached(version, ref.version(), stats));
+        return stats;
+    }
+
+    // position of each id in the list, addressed by id; -1 for ids not in it
+    private static int[] denseIndex(int[] ids) {
+        int max = 0;
+        for (int id : ids) max = Math.max(max, id);
+        int[] index = new int[max + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < ids.length; i++) if (ids[i] >= 0) index[ids[i]] = i;
+        return index;
+    }
+
+    private static int lookup(int[] index, int id) {
+        return id >= 0 && id < index.length ? index[id] : -1;
+    }
+
+    private static double percent(int part, int whole) {
+        return whole == 0 ? 0.0 : Math.round(part * 1000.0 / whole) / 10.0;
+    }
+}
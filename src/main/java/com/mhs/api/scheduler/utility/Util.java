@@ -1,5 +1,44 @@
 package com.mhs.api.scheduler.utility;
 
+import org.springframework.http.ResponseEntity;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
 public class Util {
 
+    public static final String NEXT_AFTER_HEADER = "X-Next-After";
+
+    /** Reads a nullable integer column without boxing; SQL NULL becomes {@code fallback}. */
+    public static int getInt(ResultSet rs, String column, int fallback) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? fallback : value;
+    }
+
+    /** Reads a nullable integer column without boxing; SQL NULL becomes {@code fallback}. */
+    public static int getInt(ResultSet rs, int column, int fallback) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? fallback : value;
+    }
+
+    /**
+     * A keyset page of rows fetched with one row past {@code limit}: trims that row and, when it
+     * was there, puts the key of the last row kept in the X-Next-After header for the next request.
+     */
+    public static <T> ResponseEntity<List<T>> keysetPage(List<T> rows, Integer limit, ToIntFunction<T> key) {
+        if (limit == null || rows.size() <= limit) return ResponseEntity.ok(rows);
+        List<T> page = rows.subList(0, limit);
+        return ResponseEntity.ok()
+                .header(NEXT_AFTER_HEADER, String.valueOf(key.applyAsInt(page.get(limit - 1))))
+                .body(page);
+    }
+
+    /** Ids as a JSON array, for binding to {@code IN (SELECT value FROM json_each(?))}. */
+    public static String jsonArray(Collection<Integer> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+    }
 }
@@ -0,0 +1,44 @@
+-- Tables and columns the planner/scheduler rely on but the shipped database lacks.
+
+CREATE TABLE IF NOT EXISTS schedule_assignments (
+  id INTEGER PRIMARY KEY AUTOINCREMENT,
+  section_id INTEGER NOT NULL,
+  timeslot_id INTEGER NOT NULL,
+  room_id INTEGER NOT NULL,
+  teacher_id INTEGER NOT NULL,
+  created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+  FOREIGN KEY(section_id) REFERENCES sections(id),
+  FOREIGN KEY(timeslot_id) REFERENCES timeslots(id),
+  FOREIGN KEY(room_id) REFERENCES classrooms(id),
+  FOREIGN KEY(teacher_id) REFERENCES teachers(id),
+  UNIQUE(section_id, timeslot_id),
+  UNIQUE(teacher_id, timeslot_id),
+  UNIQUE(room_id, timeslot_id)
+);
+
+CREATE TABLE IF NOT EXISTS student_enrollments (
+  id INTEGER PRIMARY KEY AUTOINCREMENT,
+  student_id INTEGER NOT NULL,
+  section_id INTEGER NOT NULL,
+  status TEXT NOT NULL DEFAULT 'enrolled',
+  created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+  FOREIGN KEY(student_id) REFERENCES students(id),
+  FOREIGN KEY(section_id) REFERENCES sections(id)
+);
+
+CREATE TABLE IF NOT EXISTS student_schedule (
+  id INTEGER PRIMARY KEY AUTOINCREMENT,
+  student_id INTEGER NOT NULL,
+  section_id INTEGER NOT NULL,
+  created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+  FOREIGN KEY(student_id) REFERENCES students(id),
+  FOREIGN KEY(section_id) REFERENCES sections(id)
+);
+
+-- denormalized for the student-facing listings; filled in by schedule generation
+ALTER TABLE sections ADD COLUMN seats_left INTEGER;
+ALTER TABLE sections ADD COLUMN schedule TEXT;
+ALTER TABLE sections ADD COLUMN teacher TEXT;
+
+UPDATE sections
+SET seats_left = capacity - (SELECT COUNT(*) FROM student_schedule ss WHERE ss.section_id = sections.id);
@@ -0,0 +1,11 @@
+-- Indexes matched to the queries in SchedulerService, StudentPlannerService and SchedulerController.
+
+CREATE INDEX IF NOT EXISTS idx_schedule_section ON schedule_assignments(section_id);
+CREATE INDEX IF NOT EXISTS idx_schedule_timeslot_room ON schedule_assignments(timeslot_id, room_id);
+CREATE INDEX IF NOT EXISTS idx_sections_semester_course ON sections(semester_id, course_id);
+CREATE INDEX IF NOT EXISTS idx_student_course_history_student_status ON student_course_history(student_id, status);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_student_schedule_student_section ON student_schedule(student_id, section_id);
+CREATE INDEX IF NOT EXISTS idx_student_schedule_section ON student_schedule(section_id);
+CREATE INDEX IF NOT EXISTS idx_student_enrollments_section ON student_enrollments(section_id);
+
+ANALYZE;
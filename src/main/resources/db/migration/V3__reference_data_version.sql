@@ -0,0 +1,75 @@
+-- separator: ;;
+-- One counter bumped by triggers whenever reference data changes, so ReferenceCatalog can poll a
+-- single row instead of reloading the tables to find out.
+
+CREATE TABLE IF NOT EXISTS reference_data_version (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    version INTEGER NOT NULL
+);;
+
+INSERT OR IGNORE INTO reference_data_version (id, version) VALUES (1, 0);;
+
+CREATE TRIGGER IF NOT EXISTS trg_timeslots_insert_version AFTER INSERT ON timeslots
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_timeslots_update_version AFTER UPDATE ON timeslots
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_timeslots_delete_version AFTER DELETE ON timeslots
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+
+CREATE TRIGGER IF NOT EXISTS trg_classrooms_insert_version AFTER INSERT ON classrooms
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_classrooms_update_version AFTER UPDATE ON classrooms
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_classrooms_delete_version AFTER DELETE ON classrooms
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+
+CREATE TRIGGER IF NOT EXISTS trg_teachers_insert_version AFTER INSERT ON teachers
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_teachers_update_version AFTER UPDATE ON teachers
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_teachers_delete_version AFTER DELETE ON teachers
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+
+CREATE TRIGGER IF NOT EXISTS trg_courses_insert_version AFTER INSERT ON courses
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_courses_update_version AFTER UPDATE ON courses
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_courses_delete_version AFTER DELETE ON courses
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+
+CREATE TRIGGER IF NOT EXISTS trg_semesters_insert_version AFTER INSERT ON semesters
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_semesters_update_version AFTER UPDATE ON semesters
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_semesters_delete_version AFTER DELETE ON semesters
+BEGIN
+    UPDATE reference_data_version SET version = version + 1 WHERE id = 1;
+END;;
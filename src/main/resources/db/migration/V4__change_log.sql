@@ -0,0 +1,71 @@
+-- separator: ;;
+-- Append-only log of the changes the schedule views depend on, so polling clients can ask for
+-- what moved since the version they last saw instead of downloading everything again. Rows are
+-- only inserted by the triggers below and only removed from the old end by compaction.
+
+CREATE TABLE IF NOT EXISTS change_log (
+    version INTEGER PRIMARY KEY AUTOINCREMENT,  -- never reused, so versions only grow
+    entity TEXT NOT NULL,                       -- assignment, section, enrollment
+    op TEXT NOT NULL,                           -- insert, update, delete
+    row_id INTEGER NOT NULL,
+    semester_id INTEGER,
+    section_id INTEGER,
+    student_id INTEGER
+);;
+
+CREATE INDEX IF NOT EXISTS idx_change_log_semester ON change_log(semester_id, version);;
+CREATE INDEX IF NOT EXISTS idx_change_log_student ON change_log(student_id, version);;
+
+-- highest version compaction has removed; a client that last saw an older one must reload
+CREATE TABLE IF NOT EXISTS change_log_state (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    compacted_through INTEGER NOT NULL
+);;
+
+INSERT OR IGNORE INTO change_log_state (id, compacted_through) VALUES (1, 0);;
+
+CREATE TRIGGER IF NOT EXISTS trg_assignments_insert_log AFTER INSERT ON schedule_assignments
+BEGIN
+    INSERT INTO change_log (entity, op, row_id, semester_id, section_id)
+    VALUES ('assignment', 'insert', NEW.id, (SELECT semester_id FROM sections WHERE id = NEW.section_id), NEW.section_id);
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_assignments_update_log AFTER UPDATE ON schedule_assignments
+BEGIN
+    INSERT INTO change_log (entity, op, row_id, semester_id, section_id)
+    VALUES ('assignment', 'update', NEW.id, (SELECT semester_id FROM sections WHERE id = NEW.section_id), NEW.section_id);
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_assignments_delete_log AFTER DELETE ON schedule_assignments
+BEGIN
+    INSERT INTO change_log (entity, op, row_id, semester_id, section_id)
+    VALUES ('assignment', 'delete', OLD.id, (SELECT semester_id FROM sections WHERE id = OLD.section_id), OLD.section_id);
+END;;
+
+CREATE TRIGGER IF NOT EXISTS trg_sections_insert_log AFTER INSERT ON sections
+BEGIN
+    INSERT INTO change_log (entity, op, row_id, semester_id, section_id)
+    VALUES ('section', 'insert', NEW.id, NEW.semester_id, NEW.id);
+END;;
+-- only the columns the listings show; rewriting a section with the same values is not a change
+CREATE TRIGGER IF NOT EXISTS trg_sections_update_log AFTER UPDATE OF seats_left, status, schedule, teacher ON sections
+WHEN OLD.seats_left IS NOT NEW.seats_left OR OLD.status IS NOT NEW.status
+  OR OLD.schedule IS NOT NEW.schedule OR OLD.teacher IS NOT NEW.teacher
+BEGIN
+    INSERT INTO change_log (entity, op, row_id, semester_id, section_id)
+    VALUES ('section', 'update', NEW.id, NEW.semester_id, NEW.id);
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_sections_delete_log AFTER DELETE ON sections
+BEGIN
+    INSERT INTO change_log (entity, op, row_id, semester_id, section_id)
+    VALUES ('section', 'delete', OLD.id, OLD.semester_id, OLD.id);
+END;;
+
+CREATE TRIGGER IF NOT EXISTS trg_student_schedule_insert_log AFTER INSERT ON student_schedule
+BEGIN
+    INSERT INTO change_log (entity, op, row_id, semester_id, section_id, student_id)
+    VALUES ('enrollment', 'insert', NEW.id, (SELECT semester_id FROM sections WHERE id = NEW.section_id), NEW.section_id, NEW.student_id);
+END;;
+CREATE TRIGGER IF NOT EXISTS trg_student_schedule_delete_log AFTER DELETE ON student_schedule
+BEGIN
+    INSERT INTO change_log (entity, op, row_id, semester_id, section_id, student_id)
+    VALUES ('enrollment', 'delete', OLD.id, (SELECT semester_id FROM sections WHERE id = OLD.section_id), OLD.section_id, OLD.student_id);
+END;;
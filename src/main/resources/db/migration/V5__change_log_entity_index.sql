@@ -0,0 +1,4 @@
+-- Lets ChangeLog.semesterScheduleVersion find a semester's latest assignment change with one
+-- index probe instead of walking back through the enrollment and seat-count rows after it.
+
+CREATE INDEX IF NOT EXISTS idx_change_log_semester_entity ON change_log(semester_id, entity, version);
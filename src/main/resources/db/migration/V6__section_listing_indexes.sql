@@ -0,0 +1,8 @@
+-- Keyset paging of the section and schedule listings (see SectionFilter): seek to
+-- (semester_id, id > after) and read sections in id order without sorting the semester.
+
+CREATE INDEX IF NOT EXISTS idx_sections_semester_id ON sections(semester_id, id);
+-- the teacher filter probes a section's assignments by teacher
+CREATE INDEX IF NOT EXISTS idx_schedule_section_teacher ON schedule_assignments(section_id, teacher_id);
+
+ANALYZE;
@@ -0,0 +1,17 @@
+-- EXPLAIN QUERY PLAN showed three of the V2 indexes were never chosen:
+--   idx_schedule_section duplicates UNIQUE(section_id, timeslot_id), whose autoindex already
+--     covers "section_id = ?" lookups;
+--   idx_schedule_timeslot_room duplicates UNIQUE(room_id, timeslot_id), which the planner
+--     prefers for "timeslot_id = ? AND room_id = ?";
+--   idx_student_course_history_student_status lost to UNIQUE(student_id, course_id, semester_id)
+--     because it could not answer the passed-courses query without the table. With course_id
+--     added it covers that query.
+-- Dropping the first two saves a write per assignment row; MigrationRunner now fails startup if a
+-- probed query stops using the index it expects.
+
+DROP INDEX IF EXISTS idx_schedule_section;
+DROP INDEX IF EXISTS idx_schedule_timeslot_room;
+DROP INDEX IF EXISTS idx_student_course_history_student_status;
+CREATE INDEX IF NOT EXISTS idx_student_course_history_student_status ON student_course_history(student_id, status, course_id);
+
+ANALYZE;
@@ -0,0 +1,12 @@
+-- SectionFilter now sends only the conditions a request sets, so each filter can be driven by an
+-- index: course code and specialization resolve through the UNIQUE name/code indexes and
+-- idx_courses_specialization into idx_sections_semester_course; day and room type need the two
+-- below to find their timeslots and classrooms before joining to schedule_assignments.
+-- idx_schedule_section_teacher (V6) is dropped: the teacher filter seeks UNIQUE(teacher_id,
+-- timeslot_id) instead, and per-section lookups already use UNIQUE(section_id, timeslot_id).
+
+DROP INDEX IF EXISTS idx_schedule_section_teacher;
+CREATE INDEX IF NOT EXISTS idx_timeslots_day ON timeslots(day);
+CREATE INDEX IF NOT EXISTS idx_classrooms_room_type ON classrooms(room_type_id);
+
+ANALYZE;